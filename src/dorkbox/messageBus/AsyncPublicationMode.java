@@ -23,16 +23,22 @@ enum AsyncPublicationMode {
      * </p>
      * This uses the LMAX disruptor for managing the ASYNC publication of messages.
      * </p>
-     * The Conversant Disruptor is shown to be faster, however the LMAX Disruptor DOES NOT generate any garbage when
-     * running, while the Conversant Disruptor creates new `Runnable` for every invocation.
+     * Neither the LMAX Disruptor nor the Conversant Disruptor generate any garbage when running.
      */
     LmaxDisruptor,
 
     /**
-     * This uses the Conversant disruptor + (many) runnable for managing the ASYNC publication of messages.
+     * This uses the Conversant disruptor (with recycled message holders) for managing the ASYNC publication of messages.
      * <p>
-     * The Conversant Disruptor is shown to be faster than the LMAX disruptor, however the Conversant disruptor
-     * relies on creating a `new Runnable()` for execution, where the LMAX Disruptor DOES NOT.
+     * The Conversant Disruptor is shown to be faster than the LMAX disruptor.
      */
     ConversantDisruptor,
+
+    /**
+     * This runs every ASYNC publication on its own virtual thread, which is best when the subscription handlers block (for example, on
+     * I/O). The number of threads is not used, however the queue capacity limits how many publications can be in-flight at once.
+     * <p>
+     * This requires Java 21+, and creates a new task (and virtual thread) for every publication.
+     */
+    VirtualThreads,
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus;
+
+/**
+ * How the async worker threads wait for new messages to be published.
+ * <p>
+ * This maps to the LMAX Disruptor "WaitStrategy", and to the Conversant Disruptor "SpinPolicy" (which has fewer options, so some of these
+ * are the same for the Conversant Disruptor).
+ */
+public
+enum AsyncWaitStrategy {
+    /**
+     * This is the default.
+     * <p>
+     * Spins, then yields, then blocks (after 60ms total). This is a good balance between latency and CPU usage.
+     * <p>
+     * The Conversant Disruptor uses its "waiting" spin policy for this.
+     */
+    PhasedBackoff,
+
+    /**
+     * Busy-spins while waiting. This is the lowest latency option, but it will use 100% of a CPU core for every worker thread, so it
+     * should only be used when there are dedicated cores available for the worker threads.
+     */
+    BusySpin,
+
+    /**
+     * Spins, then yields the thread while waiting. This is low latency, but will use a lot of CPU when idle.
+     * <p>
+     * The Conversant Disruptor uses its "waiting" spin policy for this.
+     */
+    Yielding,
+
+    /**
+     * Spins, then yields, then sleeps while waiting. This has higher latency, but uses very little CPU when idle.
+     * <p>
+     * The Conversant Disruptor uses its "waiting" spin policy for this.
+     */
+    Sleeping,
+
+    /**
+     * Blocks (via a lock and condition) while waiting. This has the highest latency, but uses the least CPU when idle. This is best on
+     * shared hosts where CPU time is more important than latency.
+     */
+    Blocking,
+}
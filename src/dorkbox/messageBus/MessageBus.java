@@ -15,15 +15,32 @@
  */
 package dorkbox.messageBus;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
 import dorkbox.messageBus.dispatch.Dispatch;
 import dorkbox.messageBus.dispatch.DispatchExact;
 import dorkbox.messageBus.dispatch.DispatchExactWithSuperTypes;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
 import dorkbox.messageBus.publication.ConversantDisruptor;
 import dorkbox.messageBus.publication.DirectInvocation;
+import dorkbox.messageBus.publication.HashedWheelTimer;
 import dorkbox.messageBus.publication.LmaxDisruptor;
+import dorkbox.messageBus.publication.ParallelInvocation;
+import dorkbox.messageBus.publication.PartitionedPublisher;
+import dorkbox.messageBus.publication.PriorityPublisher;
 import dorkbox.messageBus.publication.Publisher;
+import dorkbox.messageBus.publication.VirtualThreadPublisher;
+import dorkbox.messageBus.subscription.Mailboxes;
 import dorkbox.messageBus.subscription.SubscriptionManager;
 
 /**
@@ -102,6 +119,12 @@ class MessageBus {
         return "2.7";
     }
 
+    /**
+     * How many async publications (per thread) can be queued before publishing blocks. Bursty producers need a deep queue, otherwise
+     * they will stall until a worker thread frees up a slot.
+     */
+    public static final int DEFAULT_BURST_FACTOR = 1024;
+
     /**
      * Always return at least 1 thread
      */
@@ -113,6 +136,22 @@ class MessageBus {
         return numberOfThreads;
     }
 
+    /**
+     * @return the default capacity of the async queue, which is the number of threads * {@link #DEFAULT_BURST_FACTOR}
+     */
+    public static
+    int getDefaultQueueCapacity(final int numberOfThreads) {
+        return getMinNumberOfThreads(numberOfThreads) * DEFAULT_BURST_FACTOR;
+    }
+
+    /**
+     * Creates a builder, so that all of the options for a {@link MessageBus} can be specified together (and validated once).
+     */
+    public static
+    MessageBusConfig.Builder builder() {
+        return new MessageBusConfig.Builder();
+    }
+
     static {
         // Add this project to the updates system, which verifies this class + UUID + version information
         dorkbox.updates.Updates.INSTANCE.add(MessageBus.class, "3e5ed233229c41359cabeb56e32b16d8", getVersion());
@@ -120,15 +159,20 @@ class MessageBus {
 
     private final Dispatch dispatch;
     private final ErrorHandler errorHandler = new ErrorHandler();
-    private final DispatchMode dispatchMode;
+    private final MessageBusConfig config;
 
     private final SubscriptionManager subscriptionManager;
-    private final AsyncPublicationMode publicationMode;
-    private final SubscriptionMode subscriptionMode;
-    private final int numberOfThreads;
+    private final Mailboxes mailboxes;
 
     private final Publisher syncPublisher;
+    private final ParallelInvocation parallelPublisher;
     private final Publisher asyncPublisher;
+    private final PartitionedPublisher orderedPublisher;
+    private final PriorityPublisher priorityPublisher;
+    private final HashedWheelTimer timer;
+
+    // the publishers for the lanes, by name. Only the original messagebus can shut them down
+    private final Map<String, Publisher> lanes;
 
     /**
      * Will permit subType matching for matching what subscription handles which message
@@ -188,6 +232,8 @@ class MessageBus {
 
 
     /**
+     * Will use {@link #getDefaultQueueCapacity(int)} for the capacity of the async queue
+     *
      * @param dispatchMode     Specifies which Dispatch Mode (Exact or ExactWithSuperTypes) to allow what subscription hierarchies receive the publication of a message.
      * @param subscriptionMode Specifies which Subscription Mode (Strong or Weak) to change how subscription handlers are saved internally.
      * @param publicationMode  Specifies which Publication Mode (LMAX or Conversant disruptors) for executing messages asynchronously.
@@ -195,31 +241,88 @@ class MessageBus {
      */
     public
     MessageBus(final DispatchMode dispatchMode, final SubscriptionMode subscriptionMode, final AsyncPublicationMode publicationMode, final int numberOfThreads) {
-        this.dispatchMode = dispatchMode;
-        this.subscriptionMode = subscriptionMode;
-        this.publicationMode = publicationMode;
+        this(dispatchMode, subscriptionMode, publicationMode, numberOfThreads, getDefaultQueueCapacity(numberOfThreads));
+    }
+
+
+    /**
+     * @param dispatchMode     Specifies which Dispatch Mode (Exact or ExactWithSuperTypes) to allow what subscription hierarchies receive the publication of a message.
+     * @param subscriptionMode Specifies which Subscription Mode (Strong or Weak) to change how subscription handlers are saved internally.
+     * @param publicationMode  Specifies which Publication Mode (LMAX or Conversant disruptors) for executing messages asynchronously.
+     * @param numberOfThreads  how many threads to use for dispatching async messages
+     * @param queueCapacity    how many async publications can be queued before publishing blocks. This is rounded up to the nearest power of 2
+     */
+    public
+    MessageBus(final DispatchMode dispatchMode, final SubscriptionMode subscriptionMode, final AsyncPublicationMode publicationMode, final int numberOfThreads,
+               final int queueCapacity) {
+        this(dispatchMode, subscriptionMode, publicationMode, numberOfThreads, queueCapacity, AsyncWaitStrategy.PhasedBackoff);
+    }
+
 
+    /**
+     * @param dispatchMode     Specifies which Dispatch Mode (Exact or ExactWithSuperTypes) to allow what subscription hierarchies receive the publication of a message.
+     * @param subscriptionMode Specifies which Subscription Mode (Strong or Weak) to change how subscription handlers are saved internally.
+     * @param publicationMode  Specifies which Publication Mode (LMAX or Conversant disruptors) for executing messages asynchronously.
+     * @param numberOfThreads  how many threads to use for dispatching async messages
+     * @param queueCapacity    how many async publications can be queued before publishing blocks. This is rounded up to the nearest power of 2
+     * @param waitStrategy     Specifies how the async worker threads wait for new messages (busy-spin, yielding, sleeping, blocking, etc)
+     */
+    public
+    MessageBus(final DispatchMode dispatchMode, final SubscriptionMode subscriptionMode, final AsyncPublicationMode publicationMode, final int numberOfThreads,
+               final int queueCapacity, final AsyncWaitStrategy waitStrategy) {
         // make sure there are ALWAYS at least 1 thread, even if (by accident) 0 threads were specified because of rounding errors.
-        int minNumberOfThreads = getMinNumberOfThreads(numberOfThreads);
-        this.numberOfThreads = minNumberOfThreads;
+        this(builder().dispatchMode(dispatchMode)
+                      .subscriptionMode(subscriptionMode)
+                      .publicationMode(publicationMode)
+                      .numberOfThreads(getMinNumberOfThreads(numberOfThreads))
+                      .queueCapacity(queueCapacity)
+                      .waitStrategy(waitStrategy)
+                      .buildConfig());
+    }
+
+
+    /**
+     * @param config the (already validated) configuration for this MessageBus. See {@link #builder()}
+     */
+    public
+    MessageBus(final MessageBusConfig config) {
+        this.config = config;
+        this.mailboxes = new Mailboxes(config, errorHandler);
+
+        final Map<String, Publisher> lanes = new HashMap<String, Publisher>();
+        for (Map.Entry<String, MessageBusConfig> entry : config.getLanes().entrySet()) {
+            lanes.put(entry.getKey(), createAsyncPublisher(entry.getValue(), errorHandler));
+        }
+        this.lanes = Collections.unmodifiableMap(lanes);
 
         // Will subscribe and publish using all provided parameters in the method signature (for subscribe), and arguments (for publish)
-        this.subscriptionManager = new SubscriptionManager(subscriptionMode);
+        this.subscriptionManager = new SubscriptionManager(config, errorHandler, mailboxes, this.lanes);
 
-        if (dispatchMode == DispatchMode.Exact) {
+        if (config.getDispatchMode() == DispatchMode.Exact) {
             this.dispatch =  new DispatchExact();
         } else {
             this.dispatch = new DispatchExactWithSuperTypes();
         }
 
         syncPublisher = new DirectInvocation();
+        parallelPublisher = new ParallelInvocation(config);
 
 
 
-        if (publicationMode == AsyncPublicationMode.LmaxDisruptor) {
-            asyncPublisher = new LmaxDisruptor(minNumberOfThreads, errorHandler);
+        asyncPublisher = createAsyncPublisher(config, errorHandler);
+        orderedPublisher = new PartitionedPublisher(config, errorHandler);
+        priorityPublisher = new PriorityPublisher(config, errorHandler);
+        timer = new HashedWheelTimer(config, errorHandler);
+    }
+
+    private static
+    Publisher createAsyncPublisher(final MessageBusConfig config, final ErrorHandler errorHandler) {
+        if (config.getPublicationMode() == AsyncPublicationMode.LmaxDisruptor) {
+            return new LmaxDisruptor(config, errorHandler);
+        } else if (config.getPublicationMode() == AsyncPublicationMode.VirtualThreads) {
+            return new VirtualThreadPublisher(config);
         } else {
-            asyncPublisher = new ConversantDisruptor(minNumberOfThreads);
+            return new ConversantDisruptor(config);
         }
     }
 
@@ -232,22 +335,80 @@ class MessageBus {
      */
     private
     MessageBus(final MessageBus messageBus) {
-        this.dispatchMode = messageBus.dispatchMode;
-        this.subscriptionMode = messageBus.subscriptionMode;
-        this.publicationMode = messageBus.publicationMode;
-        this.numberOfThreads = messageBus.numberOfThreads;
+        this.config = messageBus.config;
+        this.mailboxes = new Mailboxes(messageBus.mailboxes, errorHandler) {
+            @Override
+            public
+            void shutdown() {
+                // do nothing for a clone!
+            }
+        };
+
+        final Map<String, Publisher> lanes = new HashMap<String, Publisher>();
+        for (Map.Entry<String, Publisher> entry : messageBus.lanes.entrySet()) {
+            lanes.put(entry.getKey(), cloneAsyncPublisher(entry.getValue()));
+        }
+        this.lanes = Collections.unmodifiableMap(lanes);
 
 
         // Will subscribe and publish using all provided parameters in the method signature (for subscribe), and arguments (for publish)
-        this.subscriptionManager = new SubscriptionManager(subscriptionMode);
+        this.subscriptionManager = new SubscriptionManager(config, errorHandler, mailboxes, lanes);
 
         this.dispatch = messageBus.dispatch;
         this.syncPublisher = messageBus.syncPublisher;
+        this.parallelPublisher = new ParallelInvocation(messageBus.parallelPublisher) {
+            @Override
+            public
+            void shutdown() {
+                // do nothing for a clone!
+            }
+        };
+
+
+        asyncPublisher = cloneAsyncPublisher(messageBus.asyncPublisher);
+
+        orderedPublisher = new PartitionedPublisher(messageBus.orderedPublisher) {
+            @Override
+            public
+            void shutdown() {
+                // do nothing for a clone!
+            }
+        };
+
+        priorityPublisher = new PriorityPublisher(messageBus.priorityPublisher) {
+            @Override
+            public
+            void shutdown() {
+                // do nothing for a clone!
+            }
+        };
+
+        timer = new HashedWheelTimer(messageBus.timer) {
+            @Override
+            public
+            void shutdown() {
+                // do nothing for a clone!
+            }
+        };
+    }
 
-
+    /**
+     * @return a copy of the publisher that shares its thread executor, but does not shut it down
+     */
+    private static
+    Publisher cloneAsyncPublisher(final Publisher publisher) {
         // we have to make sure that calling .shutdown() DOES NOT shutdown the thread executor for these!
-        if (publicationMode == AsyncPublicationMode.LmaxDisruptor) {
-            asyncPublisher = new LmaxDisruptor((LmaxDisruptor) messageBus.asyncPublisher) {
+        if (publisher instanceof LmaxDisruptor) {
+            return new LmaxDisruptor((LmaxDisruptor) publisher) {
+                @Override
+                public
+                void shutdown() {
+                    // do nothing for a clone!
+                }
+            };
+
+        } else if (publisher instanceof VirtualThreadPublisher) {
+            return new VirtualThreadPublisher((VirtualThreadPublisher) publisher) {
                 @Override
                 public
                 void shutdown() {
@@ -256,7 +417,7 @@ class MessageBus {
             };
 
         } else {
-            asyncPublisher = new ConversantDisruptor((ConversantDisruptor) messageBus.asyncPublisher) {
+            return new ConversantDisruptor((ConversantDisruptor) publisher) {
                 @Override
                 public
                 void shutdown() {
@@ -279,6 +440,14 @@ class MessageBus {
         return new MessageBus(this);
     }
 
+    /**
+     * @return the (immutable) configuration used by this MessageBus
+     */
+    public
+    MessageBusConfig getConfig() {
+        return config;
+    }
+
     /**
      * Subscribe all handlers of the given listener. Any listener is only subscribed once and
      * subsequent subscriptions of an already subscribed listener will be silently ignored
@@ -346,13 +515,60 @@ class MessageBus {
     }
 
 
+    /**
+     * Synchronously publish the message to all registered listeners (that match the signature), invoking the handlers in parallel.
+     * <p>
+     * This includes listeners defined for super types of the given message type, provided they are not configured
+     * to reject valid subtypes.
+     * <p>
+     * The handlers are split between the threads of a fork/join pool (see {@link MessageBusConfig#getParallelism()}), so this is meant
+     * for CPU heavy handlers. The handlers are invoked in no particular order, and the same listener might be invoked by several threads
+     * at the same time.
+     * <p>
+     * The call returns when all matching subscription handlers of all registered listeners have been notified (invoked) of the message.
+     */
+    public
+    void publishParallel(final Object message) {
+        dispatch.publish(parallelPublisher, errorHandler, subscriptionManager, message);
+    }
+
+
+    /**
+     * Synchronously publish <b>TWO</b> messages to all registered listeners (that match the signature), invoking the handlers in
+     * parallel.
+     * <p>
+     * See {@link #publishParallel(Object)}.
+     * <p>
+     * The call returns when all matching subscription handlers of all registered listeners have been notified (invoked) of the message.
+     */
+    public
+    void publishParallel(final Object message1, final Object message2) {
+        dispatch.publish(parallelPublisher, errorHandler, subscriptionManager, message1, message2);
+    }
+
+
+    /**
+     * Synchronously publish <b>THREE</b> messages to all registered listeners (that match the signature), invoking the handlers in
+     * parallel.
+     * <p>
+     * See {@link #publishParallel(Object)}.
+     * <p>
+     * The call returns when all matching subscription handlers of all registered listeners have been notified (invoked) of the message.
+     */
+    public
+    void publishParallel(final Object message1, final Object message2, final Object message3) {
+        dispatch.publish(parallelPublisher, errorHandler, subscriptionManager, message1, message2, message3);
+    }
+
+
     /**
      * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature).
      * <p>
      * This includes listeners defined for super types of the given message type, provided they are not configured to reject
      * valid subtypes.
      * <p>
-     * This call returns immediately.
+     * This call returns immediately, unless the async queue is full. In that case, the {@link OverflowPolicy} decides if the call
+     * blocks, drops a message, or publishes the message synchronously.
      */
     public
     void publishAsync(final Object message) {
@@ -367,7 +583,8 @@ class MessageBus {
      * includes listeners defined for super types of the given message type, provided they are not configured
      * to reject valid subtypes.
      * <p>
-     * This call returns immediately.
+     * This call returns immediately, unless the async queue is full. In that case, the {@link OverflowPolicy} decides if the call
+     * blocks, drops a message, or publishes the message synchronously.
      */
     public
     void publishAsync(final Object message1, final Object message2) {
@@ -381,7 +598,8 @@ class MessageBus {
      * This includes listeners defined for super types of the given message type, provided they are not configured to
      * reject valid subtypes.
      * <p>
-     * This call returns immediately.
+     * This call returns immediately, unless the async queue is full. In that case, the {@link OverflowPolicy} decides if the call
+     * blocks, drops a message, or publishes the message synchronously.
      */
     public
     void publishAsync(final Object message1, final Object message2, final Object message3) {
@@ -389,6 +607,238 @@ class MessageBus {
     }
 
 
+    /**
+     * Creates a publisher for a single type of message, which skips looking up the subscriptions for every message. This is meant for
+     * the types that are published the most, and where the type is known ahead of time.
+     * <p>
+     * The subscriptions are only resolved again when a new type of listener is subscribed, so the publisher should be created once and
+     * kept, instead of being created for every message.
+     *
+     * @param type the exact type of message that is published. Subclasses of this type are published normally
+     */
+    public
+    <T> TypedPublisher<T> publisherFor(final Class<T> type) {
+        return new TypedPublisher<T>(this, type, config.getDispatchMode() != DispatchMode.Exact,
+                                     errorHandler, subscriptionManager, syncPublisher, asyncPublisher);
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature), and track when that is done.
+     * <p>
+     * The returned future is completed once every matching subscription handler has been invoked, including the handlers that are
+     * handed off to a lane or to the mailbox of a {@link dorkbox.messageBus.annotations.Delivery#Mailbox} listener. Exceptions thrown
+     * by the handlers are sent to the error handlers, and do not fail the future. If the message is dropped because of the
+     * {@link OverflowPolicy} (by the bus, or by a lane), the future is cancelled. If the message cannot be handed off (for example,
+     * after the bus is shutdown), the future fails.
+     * <p>
+     * Only one future is created per publication, regardless of how many listeners there are.
+     */
+    public
+    CompletableFuture<Void> publishAsyncTracked(final Object message) {
+        final CompletableFuture<Void> completion = new CompletableFuture<Void>();
+        dispatch.publishTracked(asyncPublisher, errorHandler, subscriptionManager, message, completion);
+        return completion;
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature), but only if there is space for
+     * the message in the async queue. The {@link OverflowPolicy} is not used.
+     * <p>
+     * This call never blocks.
+     *
+     * @return true if the message was queued, false if the async queue is full
+     */
+    public
+    boolean tryPublishAsync(final Object message) {
+        return dispatch.tryPublish(asyncPublisher, errorHandler, subscriptionManager, message, 0L);
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature), waiting up to the specified
+     * timeout for space in the async queue. The {@link OverflowPolicy} is not used.
+     *
+     * @return true if the message was queued, false if the async queue was still full after the timeout
+     */
+    public
+    boolean tryPublishAsync(final Object message, final long timeout, final TimeUnit unit) {
+        return dispatch.tryPublish(asyncPublisher, errorHandler, subscriptionManager, message, unit.toNanos(timeout));
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature), in the same order as all other
+     * messages that were published with an equal key.
+     * <p>
+     * The key is hashed to one of {@link MessageBusConfig#getOrderedPartitions()} partitions, and each partition is handled by a
+     * single thread. Messages with different keys may be handled concurrently (and in any order).
+     * <p>
+     * This call returns immediately, unless the async queue is full. In that case, the {@link OverflowPolicy} decides if the call
+     * blocks, drops a message, or publishes the message synchronously.
+     *
+     * @param key determines the order of publication. This must not be null, and must have a consistent hashCode
+     */
+    public
+    void publishAsyncOrdered(final Object key, final Object message) {
+        dispatch.publish(orderedPublisher.getPartition(key), errorHandler, subscriptionManager, message);
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature), ahead of the normal async
+     * messages.
+     * <p>
+     * High priority messages have their own queue and threads (see {@link MessageBusConfig#getPriorityThreads()}), so they are never
+     * waiting behind the normal async messages. This is meant for control messages (shutdown, configuration changes, etc) that must
+     * overtake bulk data when the bus is under load.
+     * <p>
+     * This call returns immediately, unless the async queue is full. In that case, the {@link OverflowPolicy} decides if the call
+     * blocks, drops a message, or publishes the message synchronously.
+     */
+    public
+    void publishAsyncPriority(final Object message) {
+        dispatch.publish(priorityPublisher.getPublisher(), errorHandler, subscriptionManager, message);
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature), after the delay.
+     * <p>
+     * The delay is measured by a hashed timing wheel (which has a single thread, and is shared with {@link #publishAtFixedRate}), so
+     * scheduling is cheap even when there are very many messages waiting. The message is published up to
+     * {@link MessageBusConfig#getTimerTickNanos()} late, and is then handled the same as {@link #publishAsync(Object)}.
+     * <p>
+     * Messages that are waiting for their delay are not included in {@link #pendingCount()} or {@link #awaitQuiescence(long, TimeUnit)},
+     * and are cancelled when the bus is shutdown.
+     * <p>
+     * The timer thread never waits for space in the async queue (that would delay every other scheduled message), regardless of the
+     * {@link OverflowPolicy}. If the queue is full when the message is due, it is published on a later tick instead (and can still be
+     * cancelled until then).
+     *
+     * @return a handle that can cancel the publication
+     *
+     * @throws IllegalStateException if this bus uses {@link ProducerType#Single}, because the timer thread would be another producer
+     */
+    public
+    ScheduledPublication publishDelayed(final Object message, final long delay, final TimeUnit unit) {
+        checkTimerProducer();
+
+        return timer.schedule(new BooleanSupplier() {
+            @Override
+            public
+            boolean getAsBoolean() {
+                // if the async queue is full, the timer tries again on the next tick
+                return publishFromTimer(message);
+            }
+        }, unit.toNanos(delay), 0L);
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish a message from the supplier to all registered listeners (that match the signature), once every
+     * period (starting one period from now), until the publication is cancelled or the bus is shutdown.
+     * <p>
+     * This is fixed-rate, so the next publication is one period after the previous one was <i>due</i>, not after it was published.
+     * If the supplier returns null, nothing is published for that period.
+     * <p>
+     * The timer thread never waits for space in the async queue (that would delay every other scheduled message), regardless of the
+     * {@link OverflowPolicy}. If the queue is full when a message is due, that message is dropped (the next period publishes a new
+     * one), and reported to the error handlers.
+     *
+     * @param supplier this is called by the timer thread, so it must not block
+     *
+     * @return a handle that can cancel the publication
+     *
+     * @throws IllegalStateException if this bus uses {@link ProducerType#Single}, because the timer thread would be another producer
+     */
+    public
+    ScheduledPublication publishAtFixedRate(final Supplier<?> supplier, final long period, final TimeUnit unit) {
+        final long periodNanos = unit.toNanos(period);
+        if (periodNanos <= 0L) {
+            throw new IllegalArgumentException("The period must be greater than 0, not " + periodNanos + "ns.");
+        }
+        checkTimerProducer();
+
+        return timer.schedule(new BooleanSupplier() {
+            @Override
+            public
+            boolean getAsBoolean() {
+                final Object message = supplier.get();
+                if (message != null && !publishFromTimer(message)) {
+                    errorHandler.handlePublicationError(new PublicationError().setMessage("The async queue is full, the scheduled " +
+                                                                                          "message was dropped.")
+                                                                              .setPublishedObject(message));
+                }
+
+                // the next period publishes a new message
+                return true;
+            }
+        }, periodNanos, periodNanos);
+    }
+
+    /**
+     * The timer thread publishes the scheduled messages, so it is a producer for the async queue as well.
+     */
+    private
+    void checkTimerProducer() {
+        if (config.getPublicationMode() == AsyncPublicationMode.LmaxDisruptor && config.getProducerType() == ProducerType.Single) {
+            throw new IllegalStateException("Messages cannot be scheduled on a single-producer MessageBus, because the timer thread " +
+                                            "would also publish to it.");
+        }
+    }
+
+    /**
+     * Called by the timer thread, which must never wait for space in the async queue.
+     *
+     * @return false if the async queue is full
+     */
+    private
+    boolean publishFromTimer(final Object message) {
+        return dispatch.tryPublish(asyncPublisher, errorHandler, subscriptionManager, message, 0L);
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish each of the messages (individually) to all registered listeners (that match the signature).
+     * <p>
+     * This is the same as calling {@link #publishAsync(Object)} for every message, however the subscriptions are only resolved once
+     * for consecutive messages of the same type, and the space in the async queue is claimed for many messages at once.
+     * <p>
+     * This call returns as soon as all of the messages have been queued.
+     */
+    public
+    void publishAsyncBatch(final Object[] messages) {
+        if (messages.length > 0) {
+            dispatch.publishBatch(asyncPublisher, errorHandler, subscriptionManager, messages);
+        }
+    }
+
+
+    /**
+     * <i>Asynchronously</i> publish each of the messages (individually) to all registered listeners (that match the signature).
+     * <p>
+     * See {@link #publishAsyncBatch(Object[])}
+     */
+    public
+    void publishAsyncBatch(final Iterable<?> messages) {
+        final Object[] array;
+        if (messages instanceof Collection) {
+            array = ((Collection<?>) messages).toArray();
+        }
+        else {
+            final ArrayList<Object> list = new ArrayList<Object>();
+            for (Object message : messages) {
+                list.add(message);
+            }
+            array = list.toArray();
+        }
+
+        publishAsyncBatch(array);
+    }
+
+
     /**
      * Publication errors may occur at various points of time during message delivery. A handler may throw an exception,
      * may not be accessible due to security constraints or is not annotated properly.
@@ -402,6 +852,36 @@ class MessageBus {
     }
 
 
+    /**
+     * This is cheap (it does not allocate), so it can be sampled at a high frequency, for example, to make load-shedding decisions.
+     *
+     * @return how many asynchronous messages are waiting to be handled (or are being handled right now), including ordered messages,
+     *         high priority messages, messages on the lanes and messages waiting in the mailboxes of {@link dorkbox.messageBus.annotations.Delivery#Mailbox}
+     *         listeners
+     */
+    public
+    long pendingCount() {
+        long count = asyncPublisher.pendingCount() + orderedPublisher.pendingCount() + priorityPublisher.pendingCount() +
+                     mailboxes.pendingCount();
+        for (Publisher lane : lanes.values()) {
+            count += lane.pendingCount();
+        }
+        return count;
+    }
+
+
+    /**
+     * This is cheap (it does not allocate), so it can be sampled at a high frequency, for example, to make load-shedding decisions.
+     *
+     * @return how many more asynchronous messages can be published before the async queue is full. This does not include the
+     *         partitions used by {@link #publishAsyncOrdered(Object, Object)}
+     */
+    public
+    long remainingCapacity() {
+        return asyncPublisher.remainingCapacity();
+    }
+
+
     /**
      * Check whether any asynchronous message publications are pending to be processed.
      * <p>
@@ -411,7 +891,45 @@ class MessageBus {
      */
     public final
     boolean hasPendingMessages() {
-        return asyncPublisher.hasPendingMessages();
+        if (asyncPublisher.hasPendingMessages() || orderedPublisher.hasPendingMessages() || priorityPublisher.hasPendingMessages() ||
+            mailboxes.pendingCount() > 0L) {
+            return true;
+        }
+
+        for (Publisher lane : lanes.values()) {
+            if (lane.hasPendingMessages()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Waits until every asynchronous message that was published before this call has been handled by all of its listeners. Messages
+     * that are published while waiting are not waited for.
+     * <p>
+     * This does not spin, instead the waiting thread backs off (up to 1 ms) between checks.
+     *
+     * @return true if all of the messages were handled, false if the timeout elapsed first (or if the thread was interrupted)
+     */
+    public
+    boolean awaitQuiescence(final long timeout, final TimeUnit unit) {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        if (!priorityPublisher.awaitQuiescence(unit.toNanos(timeout)) ||
+            !asyncPublisher.awaitQuiescence(Math.max(0L, deadline - System.nanoTime())) ||
+            !orderedPublisher.awaitQuiescence(Math.max(0L, deadline - System.nanoTime()))) {
+            return false;
+        }
+
+        // the lanes (then the mailboxes) are last, because the other messages are handed off to them
+        for (Publisher lane : lanes.values()) {
+            if (!lane.awaitQuiescence(Math.max(0L, deadline - System.nanoTime()))) {
+                return false;
+            }
+        }
+        return mailboxes.awaitQuiescence(Math.max(0L, deadline - System.nanoTime()));
     }
 
 
@@ -419,12 +937,23 @@ class MessageBus {
      * Shutdown the bus such that it will stop delivering asynchronous messages. Executor service and
      * other internally used threads will be shutdown gracefully.
      * <p>
+     * Messages that were already published are handled first, waiting at most for {@link MessageBusConfig#getShutdownTimeoutNanos()}.
+     * <p>
      * After calling shutdown it is not safe to further use the message bus.
      */
     public
     void shutdown() {
-        this.subscriptionManager.shutdown();
+        // scheduled messages are cancelled, and the queued messages are handled before the subscriptions are cleared
+        this.timer.shutdown();
         this.asyncPublisher.shutdown();
+        this.orderedPublisher.shutdown();
+        this.priorityPublisher.shutdown();
+        this.parallelPublisher.shutdown();
+        for (Publisher lane : this.lanes.values()) {
+            lane.shutdown();
+        }
+        this.mailboxes.shutdown();
+        this.subscriptionManager.shutdown();
     }
 }
 
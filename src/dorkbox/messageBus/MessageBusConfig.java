@@ -0,0 +1,585 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * The (immutable) configuration of a {@link MessageBus}. Every option is validated once, when the configuration is built, and is then
+ * shared by the subscription manager, the dispatch and the publishers.
+ * <p>
+ * Use {@link MessageBus#builder()} to create a configuration.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class MessageBusConfig {
+
+    private final DispatchMode dispatchMode;
+    private final SubscriptionMode subscriptionMode;
+    private final AsyncPublicationMode publicationMode;
+    private final int numberOfThreads;
+    private final int queueCapacity;
+    private final AsyncWaitStrategy waitStrategy;
+    private final ProducerType producerType;
+    private final ThreadFactory threadFactory;
+    private final int orderedPartitions;
+    private final OverflowPolicy overflowPolicy;
+    private final long shutdownTimeoutNanos;
+    private final int mailboxCapacity;
+    private final int priorityThreads;
+    private final int parallelism;
+    private final long timerTickNanos;
+    private final Map<String, MessageBusConfig> lanes;
+
+    private
+    MessageBusConfig(final Builder builder, final int queueCapacity, final ThreadFactory threadFactory, final int orderedPartitions,
+                     final Map<String, MessageBusConfig> lanes) {
+        this.dispatchMode = builder.dispatchMode;
+        this.subscriptionMode = builder.subscriptionMode;
+        this.publicationMode = builder.publicationMode;
+        this.numberOfThreads = builder.numberOfThreads;
+        this.queueCapacity = queueCapacity;
+        this.waitStrategy = builder.waitStrategy;
+        this.producerType = builder.producerType;
+        this.threadFactory = threadFactory;
+        this.orderedPartitions = orderedPartitions;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.shutdownTimeoutNanos = builder.shutdownTimeoutNanos;
+        this.mailboxCapacity = builder.mailboxCapacity;
+        this.priorityThreads = builder.priorityThreads;
+        this.parallelism = builder.parallelism;
+        this.timerTickNanos = builder.timerTickNanos;
+        this.lanes = lanes;
+    }
+
+    /**
+     * @return which subscription hierarchies receive the publication of a message.
+     */
+    public
+    DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
+    /**
+     * @return how subscription handlers are saved internally.
+     */
+    public
+    SubscriptionMode getSubscriptionMode() {
+        return subscriptionMode;
+    }
+
+    /**
+     * @return which implementation is used for executing messages asynchronously.
+     */
+    public
+    AsyncPublicationMode getPublicationMode() {
+        return publicationMode;
+    }
+
+    /**
+     * @return how many threads are used for dispatching async messages
+     */
+    public
+    int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * @return how many async publications can be queued before publishing blocks. This is always a power of 2
+     */
+    public
+    int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return how the async worker threads wait for new messages
+     */
+    public
+    AsyncWaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * @return how many threads will publish asynchronous messages
+     */
+    public
+    ProducerType getProducerType() {
+        return producerType;
+    }
+
+    /**
+     * @return the factory used to create the async worker threads
+     */
+    public
+    ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    /**
+     * @return how many partitions (each with a single thread) are used for ordered async publication
+     */
+    public
+    int getOrderedPartitions() {
+        return orderedPartitions;
+    }
+
+    /**
+     * @return what happens to an asynchronous publication when the async queue is full
+     */
+    public
+    OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return how long (in nanoseconds) shutdown waits for the queued async messages to be handled
+     */
+    public
+    long getShutdownTimeoutNanos() {
+        return shutdownTimeoutNanos;
+    }
+
+    /**
+     * @return how many messages can wait in the mailbox of each {@link dorkbox.messageBus.annotations.Delivery#Mailbox} listener
+     */
+    public
+    int getMailboxCapacity() {
+        return mailboxCapacity;
+    }
+
+    /**
+     * @return how many threads handle the messages from {@link MessageBus#publishAsyncPriority(Object)}
+     */
+    public
+    int getPriorityThreads() {
+        return priorityThreads;
+    }
+
+    /**
+     * @return how many threads invoke the handlers for {@link MessageBus#publishParallel(Object)}
+     */
+    public
+    int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return how often (in nanoseconds) the timer for delayed and periodic publications advances. Scheduled messages are published up
+     *         to one tick late
+     */
+    public
+    long getTimerTickNanos() {
+        return timerTickNanos;
+    }
+
+    /**
+     * @return the (unmodifiable) configuration of each lane, by name. Every lane has its own queue and threads for the handlers that
+     *         are assigned to it with {@link dorkbox.messageBus.annotations.Subscribe#lane()}
+     */
+    public
+    Map<String, MessageBusConfig> getLanes() {
+        return lanes;
+    }
+
+    /**
+     * @return a new builder, with all of the options from this configuration. This is useful to create a similar configuration
+     */
+    public
+    Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.dispatchMode = dispatchMode;
+        builder.subscriptionMode = subscriptionMode;
+        builder.publicationMode = publicationMode;
+        builder.numberOfThreads = numberOfThreads;
+        builder.queueCapacity = queueCapacity;
+        builder.waitStrategy = waitStrategy;
+        builder.producerType = producerType;
+        builder.threadFactory = threadFactory;
+        builder.orderedPartitions = orderedPartitions;
+        builder.overflowPolicy = overflowPolicy;
+        builder.shutdownTimeoutNanos = shutdownTimeoutNanos;
+        builder.mailboxCapacity = mailboxCapacity;
+        builder.priorityThreads = priorityThreads;
+        builder.parallelism = parallelism;
+        builder.timerTickNanos = timerTickNanos;
+        for (Map.Entry<String, MessageBusConfig> entry : lanes.entrySet()) {
+            final MessageBusConfig lane = entry.getValue();
+            builder.lane(entry.getKey(), lane.numberOfThreads, lane.queueCapacity, lane.waitStrategy);
+        }
+        return builder;
+    }
+
+    @Override
+    public
+    String toString() {
+        return "MessageBusConfig{" + "dispatchMode=" + dispatchMode + ", subscriptionMode=" + subscriptionMode + ", publicationMode=" +
+               publicationMode + ", numberOfThreads=" + numberOfThreads + ", queueCapacity=" + queueCapacity + ", waitStrategy=" +
+               waitStrategy + ", producerType=" + producerType + ", orderedPartitions=" + orderedPartitions +
+               ", overflowPolicy=" + overflowPolicy + ", shutdownTimeoutNanos=" + shutdownTimeoutNanos +
+               ", mailboxCapacity=" + mailboxCapacity + ", priorityThreads=" + priorityThreads +
+               ", parallelism=" + parallelism + ", timerTickNanos=" + timerTickNanos + ", lanes=" + lanes.keySet() + '}';
+    }
+
+
+    /**
+     * Collects the options for a {@link MessageBus}. Options that are not specified use the same defaults as the {@link MessageBus}
+     * constructors.
+     */
+    public static final
+    class Builder {
+        private DispatchMode dispatchMode = DispatchMode.ExactWithSuperTypes;
+        private SubscriptionMode subscriptionMode = SubscriptionMode.StrongReferences;
+        private AsyncPublicationMode publicationMode = AsyncPublicationMode.LmaxDisruptor;
+        private int numberOfThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int queueCapacity = 0; // 0 means "use the default for the number of threads"
+        private AsyncWaitStrategy waitStrategy = AsyncWaitStrategy.PhasedBackoff;
+        private ProducerType producerType = ProducerType.Multi;
+        private ThreadFactory threadFactory = null;
+        private int orderedPartitions = 0; // 0 means "use the number of threads"
+        private OverflowPolicy overflowPolicy = OverflowPolicy.Block;
+        private long shutdownTimeoutNanos = TimeUnit.SECONDS.toNanos(10);
+        private int mailboxCapacity = 1024;
+        private int priorityThreads = 1;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private long timerTickNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private final Map<String, Lane> lanes = new LinkedHashMap<String, Lane>();
+
+        private static final
+        class Lane {
+            private final int numberOfThreads;
+            private final int queueCapacity;
+            private final AsyncWaitStrategy waitStrategy;
+
+            private
+            Lane(final int numberOfThreads, final int queueCapacity, final AsyncWaitStrategy waitStrategy) {
+                this.numberOfThreads = numberOfThreads;
+                this.queueCapacity = queueCapacity;
+                this.waitStrategy = waitStrategy;
+            }
+        }
+
+        Builder() {
+        }
+
+        /**
+         * @param dispatchMode Specifies which Dispatch Mode (Exact or ExactWithSuperTypes) to allow what subscription hierarchies receive
+         *                     the publication of a message.
+         */
+        public
+        Builder dispatchMode(final DispatchMode dispatchMode) {
+            this.dispatchMode = dispatchMode;
+            return this;
+        }
+
+        /**
+         * @param subscriptionMode Specifies which Subscription Mode (Strong or Weak) to change how subscription handlers are saved internally.
+         */
+        public
+        Builder subscriptionMode(final SubscriptionMode subscriptionMode) {
+            this.subscriptionMode = subscriptionMode;
+            return this;
+        }
+
+        /**
+         * @param publicationMode Specifies which Publication Mode (LMAX or Conversant disruptors) for executing messages asynchronously.
+         */
+        public
+        Builder publicationMode(final AsyncPublicationMode publicationMode) {
+            this.publicationMode = publicationMode;
+            return this;
+        }
+
+        /**
+         * @param numberOfThreads how many threads to use for dispatching async messages. Must be at least 1
+         */
+        public
+        Builder numberOfThreads(final int numberOfThreads) {
+            this.numberOfThreads = numberOfThreads;
+            return this;
+        }
+
+        /**
+         * If not specified, {@link MessageBus#getDefaultQueueCapacity(int)} is used.
+         *
+         * @param queueCapacity how many async publications can be queued before publishing blocks. This is rounded up to the nearest
+         *                      power of 2
+         */
+        public
+        Builder queueCapacity(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param waitStrategy Specifies how the async worker threads wait for new messages (busy-spin, yielding, sleeping, blocking, etc)
+         */
+        public
+        Builder waitStrategy(final AsyncWaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * @param producerType Specifies if only a single thread (or multiple threads) will publish asynchronous messages
+         */
+        public
+        Builder producerType(final ProducerType producerType) {
+            this.producerType = producerType;
+            return this;
+        }
+
+        /**
+         * If not specified, daemon threads named "MessageBus-*" are used.
+         *
+         * @param threadFactory the factory used to create the async worker threads
+         */
+        public
+        Builder threadFactory(final ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * If not specified, the number of threads is used.
+         *
+         * @param orderedPartitions how many partitions (each with a single thread, which is only started when first used) are used for
+         *                          {@link MessageBus#publishAsyncOrdered(Object, Object)}.
+         */
+        public
+        Builder orderedPartitions(final int orderedPartitions) {
+            this.orderedPartitions = orderedPartitions;
+            return this;
+        }
+
+        /**
+         * {@link OverflowPolicy#DropOldest} is only supported by {@link AsyncPublicationMode#ConversantDisruptor}.
+         *
+         * @param overflowPolicy Specifies what happens to an asynchronous publication when the async queue is full
+         */
+        public
+        Builder overflowPolicy(final OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * If not specified, shutdown waits for 10 seconds.
+         *
+         * @param timeout how long shutdown waits for the queued async messages to be handled, before the worker threads are stopped
+         */
+        public
+        Builder shutdownTimeout(final long timeout, final TimeUnit unit) {
+            this.shutdownTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * If not specified, each mailbox can hold 1024 messages. This is rounded up to the nearest power of 2
+         *
+         * @param mailboxCapacity how many messages can wait in the mailbox of each {@link dorkbox.messageBus.annotations.Delivery#Mailbox}
+         *                        listener before publishing to that listener blocks
+         */
+        public
+        Builder mailboxCapacity(final int mailboxCapacity) {
+            this.mailboxCapacity = mailboxCapacity;
+            return this;
+        }
+
+        /**
+         * If not specified, 1 thread is used.
+         *
+         * @param priorityThreads how many threads handle the messages from {@link MessageBus#publishAsyncPriority(Object)}. These
+         *                        threads (and their queue) are only created when a priority message is first published
+         */
+        public
+        Builder priorityThreads(final int priorityThreads) {
+            this.priorityThreads = priorityThreads;
+            return this;
+        }
+
+        /**
+         * If not specified, the number of available processors is used.
+         *
+         * @param parallelism how many threads invoke the handlers for {@link MessageBus#publishParallel(Object)}. These threads are only
+         *                    created when a message is first published in parallel
+         */
+        public
+        Builder parallelism(final int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * If not specified, the timer advances every 10 milliseconds.
+         *
+         * @param tick how often the timer for {@link MessageBus#publishDelayed(Object, long, TimeUnit)} and
+         *             {@link MessageBus#publishAtFixedRate(java.util.function.Supplier, long, TimeUnit)} advances. Scheduled messages
+         *             are published up to one tick late
+         */
+        public
+        Builder timerTick(final long tick, final TimeUnit unit) {
+            this.timerTickNanos = unit.toNanos(tick);
+            return this;
+        }
+
+        /**
+         * Defines a lane, which has its own queue and threads, so that slow handlers (for example, ones that write to a database) do not
+         * delay the other handlers. Handlers are assigned to a lane with {@link dorkbox.messageBus.annotations.Subscribe#lane()}.
+         * <p>
+         * Only asynchronous publications use lanes. Every other option (such as the publication mode) is the same as for the bus.
+         * Defining a lane with the same name again replaces it.
+         * <p>
+         * A message uses one slot in the queue of each lane that it is handed to. When that queue is full, the {@link OverflowPolicy}
+         * decides if the thread handing off the message waits, drops it for that lane, or invokes the handlers of that lane itself.
+         *
+         * @param name the name of the lane
+         * @param numberOfThreads how many threads to use for the handlers in this lane. Must be at least 1
+         * @param queueCapacity how many messages can be queued for this lane before the overflow policy is used, or 0 to use the
+         *                      default for the number of threads. This is rounded up to the nearest power of 2
+         * @param waitStrategy Specifies how the threads of this lane wait for new messages
+         */
+        public
+        Builder lane(final String name, final int numberOfThreads, final int queueCapacity, final AsyncWaitStrategy waitStrategy) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("The name of a lane cannot be null or empty.");
+            }
+
+            this.lanes.put(name, new Lane(numberOfThreads, queueCapacity, waitStrategy));
+            return this;
+        }
+
+        /**
+         * Validates the options, and creates the (immutable) configuration from them.
+         *
+         * @throws IllegalArgumentException if any of the options are invalid
+         */
+        public
+        MessageBusConfig buildConfig() {
+            if (dispatchMode == null) {
+                throw new IllegalArgumentException("The dispatch mode cannot be null.");
+            }
+            if (subscriptionMode == null) {
+                throw new IllegalArgumentException("The subscription mode cannot be null.");
+            }
+            if (publicationMode == null) {
+                throw new IllegalArgumentException("The publication mode cannot be null.");
+            }
+            if (waitStrategy == null) {
+                throw new IllegalArgumentException("The wait strategy cannot be null.");
+            }
+            if (producerType == null) {
+                throw new IllegalArgumentException("The producer type cannot be null.");
+            }
+            if (overflowPolicy == null) {
+                throw new IllegalArgumentException("The overflow policy cannot be null.");
+            }
+            if (overflowPolicy == OverflowPolicy.DropOldest && publicationMode != AsyncPublicationMode.ConversantDisruptor) {
+                throw new IllegalArgumentException("The " + overflowPolicy + " overflow policy is not supported by " + publicationMode + ".");
+            }
+            if (numberOfThreads < 1) {
+                throw new IllegalArgumentException("The number of threads must be at least 1, not " + numberOfThreads + ".");
+            }
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("The queue capacity cannot be negative, not " + queueCapacity + ".");
+            }
+            if (shutdownTimeoutNanos < 0) {
+                throw new IllegalArgumentException("The shutdown timeout cannot be negative, not " + shutdownTimeoutNanos + "ns.");
+            }
+            if (timerTickNanos < 1) {
+                throw new IllegalArgumentException("The timer tick must be at least 1ns, not " + timerTickNanos + "ns.");
+            }
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("The parallelism must be at least 1, not " + parallelism + ".");
+            }
+            if (priorityThreads < 1) {
+                throw new IllegalArgumentException("The number of priority threads must be at least 1, not " + priorityThreads + ".");
+            }
+            if (mailboxCapacity < 1) {
+                throw new IllegalArgumentException("The mailbox capacity must be at least 1, not " + mailboxCapacity + ".");
+            }
+            if (orderedPartitions < 0) {
+                throw new IllegalArgumentException("The number of ordered partitions cannot be negative, not " + orderedPartitions + ".");
+            }
+
+            int capacity = queueCapacity;
+            if (capacity == 0) {
+                capacity = MessageBus.getDefaultQueueCapacity(numberOfThreads);
+            }
+
+            // the ring buffer (and queue) sizes must be a power of 2 (and at least 2), so ALWAYS round UP to the nearest power of 2
+            if (capacity <= 2) {
+                capacity = 2;
+            }
+            else if (capacity > 1 << 30) {
+                capacity = 1 << 30;
+            }
+            else {
+                capacity = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+            }
+
+            ThreadFactory factory = threadFactory;
+            if (factory == null) {
+                factory = new NamedThreadFactory("MessageBus", true);
+            }
+
+            int partitions = orderedPartitions;
+            if (partitions == 0) {
+                partitions = numberOfThreads;
+            }
+
+            // every lane is a copy of this configuration, but with its own threads, queue and wait strategy
+            final Map<String, MessageBusConfig> laneConfigs = new LinkedHashMap<String, MessageBusConfig>();
+            for (Map.Entry<String, Lane> entry : lanes.entrySet()) {
+                final Lane lane = entry.getValue();
+
+                final Builder laneBuilder = new Builder();
+                laneBuilder.dispatchMode = dispatchMode;
+                laneBuilder.subscriptionMode = subscriptionMode;
+                laneBuilder.publicationMode = publicationMode;
+                laneBuilder.numberOfThreads = lane.numberOfThreads;
+                laneBuilder.queueCapacity = lane.queueCapacity;
+                laneBuilder.waitStrategy = lane.waitStrategy;
+                laneBuilder.producerType = ProducerType.Multi; // all of the bus threads publish to the lane
+                laneBuilder.threadFactory = factory;
+                laneBuilder.overflowPolicy = overflowPolicy;
+                laneBuilder.shutdownTimeoutNanos = shutdownTimeoutNanos;
+                laneBuilder.mailboxCapacity = mailboxCapacity;
+
+                laneConfigs.put(entry.getKey(), laneBuilder.buildConfig());
+            }
+
+            return new MessageBusConfig(this, capacity, factory, partitions, Collections.unmodifiableMap(laneConfigs));
+        }
+
+        /**
+         * Validates the options, and creates a new {@link MessageBus} from them.
+         *
+         * @throws IllegalArgumentException if any of the options are invalid
+         */
+        public
+        MessageBus build() {
+            return new MessageBus(buildConfig());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus;
+
+/**
+ * What happens to an asynchronous publication when the async queue is full.
+ * <p>
+ * This is only used by {@link MessageBus#publishAsync(Object)} (and the other publishAsync methods). The tryPublishAsync methods never
+ * block, and instead return false when the queue is full.
+ */
+public
+enum OverflowPolicy {
+    /**
+     * This is the default.
+     * <p>
+     * The publishing thread waits until there is space in the queue.
+     */
+    Block,
+
+    /**
+     * The message that is being published is discarded.
+     */
+    DropNewest,
+
+    /**
+     * The oldest message that is still waiting in the queue is discarded, to make space for the message that is being published.
+     * <p>
+     * This is only supported by the Conversant Disruptor, messages that have been published to the LMAX ring buffer (or to a virtual
+     * thread) cannot be removed.
+     */
+    DropOldest,
+
+    /**
+     * The message is published synchronously, by the publishing thread. This means that the message may be handled before messages
+     * that are still in the queue.
+     */
+    CallerRuns,
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus;
+
+/**
+ * How many threads will publish asynchronous messages to the MessageBus.
+ * <p>
+ * This is only used by the LMAX Disruptor, the Conversant Disruptor is always safe to use from multiple threads.
+ */
+public
+enum ProducerType {
+    /**
+     * This is the default.
+     * <p>
+     * Any number of threads can publish asynchronous messages at the same time.
+     */
+    Multi,
+
+    /**
+     * Only ONE thread will ever publish asynchronous messages, which removes the CAS (and contention) when claiming a slot in the ring
+     * buffer.
+     * <p>
+     * This includes publications from inside of a subscription handler, which run on the async worker threads! When assertions are enabled
+     * (-ea), publishing from a different thread will throw an {@link IllegalStateException}, otherwise it is undefined behavior.
+     * <p>
+     * Scheduled messages are published by the timer thread, so {@link MessageBus#publishDelayed} and
+     * {@link MessageBus#publishAtFixedRate} cannot be used.
+     */
+    Single,
+}
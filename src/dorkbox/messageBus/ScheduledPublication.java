@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus;
+
+/**
+ * A handle for a publication that was scheduled with {@link MessageBus#publishDelayed(Object, long, java.util.concurrent.TimeUnit)}
+ * or {@link MessageBus#publishAtFixedRate(java.util.function.Supplier, long, java.util.concurrent.TimeUnit)}.
+ *
+ * @author dorkbox, llc
+ */
+public
+interface ScheduledPublication {
+
+    /**
+     * Cancels the publication. A periodic publication is not published again, however a publication that has already started is not
+     * interrupted.
+     *
+     * @return true if the publication was cancelled by this call, false if it was already cancelled (or if a delayed publication was
+     *         already published)
+     */
+    boolean cancel();
+
+    /**
+     * @return true if the publication was cancelled (either directly, or because the bus was shutdown)
+     */
+    boolean isCancelled();
+
+    /**
+     * @return true if the publication will not happen (again), because a delayed publication was already published, or because the
+     *         publication was cancelled
+     */
+    boolean isDone();
+}
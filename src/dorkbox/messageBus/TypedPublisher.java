@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus;
+
+import dorkbox.messageBus.error.DeadMessage;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.publication.Publisher;
+import dorkbox.messageBus.subscription.DispatchPlan;
+import dorkbox.messageBus.subscription.SubscriptionManager;
+
+/**
+ * Publishes messages of a single type, without looking up the subscriptions for every message. Created with
+ * {@link MessageBus#publisherFor(Class)}.
+ * <p>
+ * The {@link dorkbox.messageBus.subscription.DispatchPlan} for the type is resolved once, and is only resolved again when a new type of
+ * listener is subscribed. Publishing a message is then a single volatile read, instead of the lookup that
+ * {@link MessageBus#publish(Object)} does.
+ * <p>
+ * Messages that are a subclass of the type are published normally, since their subscriptions are different.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class TypedPublisher<T> {
+
+    /**
+     * The plan, and the epoch that was read before it was resolved. This is immutable, so it is safely published without being volatile.
+     */
+    private static final
+    class Resolved {
+        private final long epoch;
+        private final DispatchPlan plan;
+
+        private
+        Resolved(final long epoch, final DispatchPlan plan) {
+            this.epoch = epoch;
+            this.plan = plan;
+        }
+    }
+
+    private final MessageBus messageBus;
+    private final Class<T> type;
+    private final boolean superTypes;
+
+    private final ErrorHandler errorHandler;
+    private final SubscriptionManager subscriptionManager;
+    private final Publisher syncPublisher;
+    private final Publisher asyncPublisher;
+
+    // -1 is never a valid epoch, so the plan is resolved when the first message is published
+    private Resolved resolved = new Resolved(-1L, null);
+
+    TypedPublisher(final MessageBus messageBus, final Class<T> type, final boolean superTypes,
+                   final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                   final Publisher syncPublisher, final Publisher asyncPublisher) {
+        this.messageBus = messageBus;
+        this.type = type;
+        this.superTypes = superTypes;
+        this.errorHandler = errorHandler;
+        this.subscriptionManager = subscriptionManager;
+        this.syncPublisher = syncPublisher;
+        this.asyncPublisher = asyncPublisher;
+    }
+
+    /**
+     * @return the plan for the type, resolving it again if the subscriptions have changed
+     */
+    private
+    DispatchPlan getPlan() {
+        // the epoch only changes after the cached plans are discarded, so a plan resolved after reading it is never older
+        final long epoch = subscriptionManager.getEpoch();
+
+        Resolved resolved = this.resolved;
+        if (resolved.epoch != epoch) {
+            final DispatchPlan plan;
+            if (superTypes) {
+                plan = subscriptionManager.getPlan(type);
+            } else {
+                plan = subscriptionManager.createExactPlan(type);
+            }
+
+            resolved = new Resolved(epoch, plan);
+            this.resolved = resolved;
+        }
+
+        return resolved.plan;
+    }
+
+    /**
+     * @return the type of message that this publishes
+     */
+    public
+    Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Synchronously publish the message to all registered listeners (that match the signature).
+     * <p>
+     * The call returns when all matching subscription handlers of all registered listeners have been notified (invoked) of the message.
+     *
+     * @see MessageBus#publish(Object)
+     */
+    public
+    void publish(final T message) {
+        if (message.getClass() != type) {
+            messageBus.publish(message);
+            return;
+        }
+
+        final DispatchPlan plan = getPlan();
+        if (plan.isDead()) {
+            syncPublisher.publish(errorHandler, subscriptionManager, plan.getSubscriptions(), null, new DeadMessage(message));
+        } else {
+            syncPublisher.publish(errorHandler, subscriptionManager, plan.getSubscriptions(), null, message);
+        }
+    }
+
+    /**
+     * <i>Asynchronously</i> publish the message to all registered listeners (that match the signature).
+     *
+     * @see MessageBus#publishAsync(Object)
+     */
+    public
+    void publishAsync(final T message) {
+        if (message.getClass() != type) {
+            messageBus.publishAsync(message);
+            return;
+        }
+
+        final DispatchPlan plan = getPlan();
+        if (plan.isDead()) {
+            asyncPublisher.publish(errorHandler, subscriptionManager, plan.getSubscriptions(), null, new DeadMessage(message));
+        } else {
+            asyncPublisher.publish(errorHandler, subscriptionManager, plan.getSubscriptions(), null, message);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.annotations;
+
+/**
+ * How messages are delivered to the handlers of a listener.
+ *
+ * @author dorkbox, llc
+ */
+public enum Delivery {
+    /**
+     * This is the default. Handlers are invoked by the thread that publishes (or dispatches) the message, so the handlers of a listener
+     * can be invoked by many threads at the same time, unless they are marked with {@link Synchronized}.
+     */
+    Direct,
+
+    /**
+     * Every listener has its own bounded mailbox, and the messages in it are handled (in order) by the worker pool, one at a time.
+     * The mailbox is only scheduled onto the worker pool when it has messages, so handlers of the same listener are never invoked
+     * concurrently (the same as {@link Synchronized}, but for all handlers) without threads waiting on the listener's monitor.
+     * <p>
+     * Handlers are always invoked asynchronously, even for synchronous publications. Mailbox listeners always use strong references,
+     * and publishing blocks when the mailbox is full.
+     */
+    Mailbox
+}
@@ -34,6 +34,9 @@ import java.lang.annotation.Target;
  * <p/>
  * Reference type: The bus will use either strong or weak references to its registered listeners,
  * depending on which reference type (@see References) is set
+ * <p/>
+ * Delivery: The bus will either invoke the handlers directly, or via a per-listener mailbox, depending on which delivery
+ * (@see Delivery) is set
  *
  * @author bennidi
  * @author dorkbox, llc
@@ -52,4 +55,12 @@ public
      * the default here "Undefined" here so that the {@link dorkbox.messageBus.SubscriptionMode#StrongReferences} takes priority
      */
     References references() default References.Undefined;
+
+    /**
+     * By default, handlers are invoked directly by the thread that publishes (or dispatches) the message.
+     *
+     * {@link Delivery#Mailbox} guarantees that only one handler of each listener runs at a time, without the monitor contention of
+     * {@link Synchronized}. Mailbox listeners always use STRONG references.
+     */
+    Delivery delivery() default Delivery.Direct;
 }
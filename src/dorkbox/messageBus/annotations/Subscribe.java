@@ -71,4 +71,21 @@ public
      * handlers that have been declared by a superclass but do not apply to the subclass
      */
     boolean enabled() default true;
+
+    /**
+     * The name of the lane (@see dorkbox.messageBus.MessageBusConfig.Builder#lane) whose threads handle the asynchronous messages
+     * for this handler. This isolates slow handlers, so that they do not delay the other handlers.
+     *
+     * By default (or if the lane is not defined), the handler uses the threads of the bus.
+     */
+    String lane() default "";
+
+    /**
+     * Handlers with a higher priority receive a message before handlers with a lower priority. Handlers with the same priority receive
+     * it in the order that they were subscribed. Handlers for the exact type of a message still receive it before handlers for its
+     * super types.
+     *
+     * The order is decided when the handler is subscribed, so this has no cost during publication.
+     */
+    int priority() default 0;
 }
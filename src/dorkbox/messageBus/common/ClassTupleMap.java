@@ -0,0 +1,216 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A flat map of 2 or 3 "message classes" (compared by identity) to a unique object as the "value". This map is NEVER cleared (shutdown
+ * clears it), and the "value" object is used to store/lookup in another map.
+ * <p>
+ * This keeps track of multi-messages with a single lookup, instead of descending through a map for every class. The table is
+ * open-addressed, and is never modified once it is visible to other threads. Adding a key copies the table and publishes the copy with
+ * a CAS, so a lookup is a single volatile read and (usually) a single probe, without any locks.
+ * <p>
+ * Keys are only added the first time that a combination of classes is seen, so copying the table is rare.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class ClassTupleMap {
+    // must be a power of 2
+    private static final int INITIAL_SIZE = 16;
+
+    // kept low, so that a probe almost never has to look past the first entry
+    private static final float LOAD_FACTOR = 0.5F;
+
+    private static final AtomicInteger valueId = new AtomicInteger(Integer.MIN_VALUE);
+
+    private static final
+    class Entry {
+        private final Class<?> key1;
+        private final Class<?> key2;
+        private final Class<?> key3;
+        private final int hash;
+        private final MultiClass value;
+
+        private
+        Entry(final Class<?> key1, final Class<?> key2, final Class<?> key3, final int hash, final MultiClass value) {
+            this.key1 = key1;
+            this.key2 = key2;
+            this.key3 = key3;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    private static final AtomicReferenceFieldUpdater<ClassTupleMap, Entry[]> tableREF =
+                    AtomicReferenceFieldUpdater.newUpdater(ClassTupleMap.class,
+                                                           Entry[].class,
+                                                           "table");
+
+    private volatile Entry[] table = new Entry[INITIAL_SIZE];
+
+
+    public
+    ClassTupleMap() {
+    }
+
+
+    public
+    void clear() {
+        // gc handles the rest
+        this.table = new Entry[INITIAL_SIZE];
+    }
+
+    /**
+     * @return the (unique) value for the classes, never null
+     */
+    public
+    MultiClass get(final Class<?> key1, final Class<?> key2) {
+        if (key1 == null || key2 == null) {
+            throw new NullPointerException("keys");
+        }
+
+        final int hash = hash(key1, key2, null);
+
+        final MultiClass value = find(table, key1, key2, null, hash);
+        if (value != null) {
+            return value;
+        }
+
+        return add(key1, key2, null, hash);
+    }
+
+    /**
+     * @return the (unique) value for the classes, never null
+     */
+    public
+    MultiClass get(final Class<?> key1, final Class<?> key2, final Class<?> key3) {
+        if (key1 == null || key2 == null || key3 == null) {
+            throw new NullPointerException("keys");
+        }
+
+        final int hash = hash(key1, key2, key3);
+
+        final MultiClass value = find(table, key1, key2, key3, hash);
+        if (value != null) {
+            return value;
+        }
+
+        return add(key1, key2, key3, hash);
+    }
+
+    private static
+    int hash(final Class<?> key1, final Class<?> key2, final Class<?> key3) {
+        int hash = System.identityHashCode(key1);
+        hash = hash * 31 + System.identityHashCode(key2);
+        if (key3 != null) {
+            hash = hash * 31 + System.identityHashCode(key3);
+        }
+
+        // spread the high bits, since only the low bits are used for the index
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the value for the classes, or null if they are not in the table
+     */
+    private static
+    MultiClass find(final Entry[] table, final Class<?> key1, final Class<?> key2, final Class<?> key3, final int hash) {
+        final int mask = table.length - 1;
+        int index = hash & mask;
+
+        // the table is never full, so there is always an empty slot to stop at
+        Entry entry;
+        while ((entry = table[index]) != null) {
+            if (entry.hash == hash && entry.key1 == key1 && entry.key2 == key2 && entry.key3 == key3) {
+                return entry.value;
+            }
+
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds the classes, unless another thread already added them.
+     *
+     * @return the value for the classes
+     */
+    private
+    MultiClass add(final Class<?> key1, final Class<?> key2, final Class<?> key3, final int hash) {
+        final Entry newEntry = new Entry(key1, key2, key3, hash, new MultiClass(valueId.getAndIncrement()));
+
+        while (true) {
+            final Entry[] current = table;
+
+            final MultiClass existing = find(current, key1, key2, key3, hash);
+            if (existing != null) {
+                return existing;
+            }
+
+            final Entry[] newTable = copy(current, newEntry);
+            if (tableREF.compareAndSet(this, current, newTable)) {
+                return newEntry.value;
+            }
+
+            // another key was added (or the table was cleared), so try again
+        }
+    }
+
+    /**
+     * @return a copy of the table (larger if necessary) with the new entry added
+     */
+    private static
+    Entry[] copy(final Entry[] table, final Entry newEntry) {
+        int size = 1;
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != null) {
+                size++;
+            }
+        }
+
+        int capacity = table.length;
+        while (size > capacity * LOAD_FACTOR) {
+            capacity <<= 1;
+        }
+
+        final Entry[] newTable = new Entry[capacity];
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != null) {
+                insert(newTable, table[i]);
+            }
+        }
+        insert(newTable, newEntry);
+
+        return newTable;
+    }
+
+    private static
+    void insert(final Entry[] table, final Entry entry) {
+        final int mask = table.length - 1;
+        int index = entry.hash & mask;
+
+        while (table[index] != null) {
+            index = (index + 1) & mask;
+        }
+
+        table[index] = entry;
+    }
+}
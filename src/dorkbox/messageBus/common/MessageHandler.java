@@ -41,6 +41,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 
 import dorkbox.classUtil.ReflectionUtils;
+import dorkbox.messageBus.annotations.Delivery;
 import dorkbox.messageBus.annotations.Listener;
 import dorkbox.messageBus.annotations.References;
 import dorkbox.messageBus.annotations.Subscribe;
@@ -116,8 +117,11 @@ class MessageHandler {
 
     private final Class<?>[] handledMessages;
     private final boolean acceptsSubtypes;
+    private final String lane;
+    private final int priority;
 
     private final boolean isSynchronized;
+    private final boolean isMailbox;
     private final int referenceType;
 
     private
@@ -128,11 +132,19 @@ class MessageHandler {
 
         this.method = method;
         this.acceptsSubtypes = config.acceptSubtypes();
+        this.lane = config.lane();
+        this.priority = config.priority();
         this.handledMessages = method.getParameterTypes();
         this.isSynchronized = ReflectionUtils.INSTANCE.getAnnotation(method, Synchronized.class) != null;
 
         Listener annotation = ReflectionUtils.INSTANCE.getAnnotation(clazz, Listener.class);
-        if (annotation == null || annotation.references().equals(References.Undefined)) {
+        this.isMailbox = annotation != null && annotation.delivery() == Delivery.Mailbox;
+
+        if (isMailbox) {
+            // the mailbox of a listener is only removed when it is unsubscribed, so it must never be garbage collected before that
+            this.referenceType = STRONG;
+        }
+        else if (annotation == null || annotation.references().equals(References.Undefined)) {
             this.referenceType = UNDEFINED;
         }
         else if (annotation.references().equals(References.Weak)) {
@@ -148,6 +160,14 @@ class MessageHandler {
         return this.isSynchronized;
     }
 
+    /**
+     * @return true if messages for this handler are delivered via the mailbox of the listener (@see Delivery#Mailbox)
+     */
+    public final
+    boolean isMailbox() {
+        return this.isMailbox;
+    }
+
     public final
     int getReferenceType() {
         // this is checked every time a new subscription is created.
@@ -169,6 +189,22 @@ class MessageHandler {
         return this.acceptsSubtypes;
     }
 
+    /**
+     * @return the name of the lane that handles the asynchronous messages for this handler, or an empty string for the default
+     */
+    public final
+    String getLane() {
+        return this.lane;
+    }
+
+    /**
+     * @return handlers with a higher priority receive a message first
+     */
+    public final
+    int getPriority() {
+        return this.priority;
+    }
+
     @Override
     public final
     int hashCode() {
@@ -15,6 +15,7 @@
  */
 package dorkbox.messageBus.dispatch;
 
+import java.util.concurrent.CompletableFuture;
 
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.publication.Publisher;
@@ -28,4 +29,21 @@ public interface Dispatch {
     void publish(Publisher publisher, ErrorHandler errorHandler, SubscriptionManager subscriptionManager, Object message1);
     void publish(Publisher publisher, ErrorHandler errorHandler, SubscriptionManager subscriptionManager, Object message1, Object message2);
     void publish(Publisher publisher, ErrorHandler errorHandler, SubscriptionManager subscriptionManager, Object message1, Object message2, Object message3);
+
+    /**
+     * Publishes each message individually, however the subscriptions are only resolved once for consecutive messages of the same type
+     */
+    void publishBatch(Publisher publisher, ErrorHandler errorHandler, SubscriptionManager subscriptionManager, Object[] messages);
+
+    /**
+     * @return false if there was no space for the message in the queue, after waiting (at most) for the timeout
+     */
+    boolean tryPublish(Publisher publisher, ErrorHandler errorHandler, SubscriptionManager subscriptionManager, Object message1,
+                       long timeoutNanos);
+
+    /**
+     * The completion is completed once all of the listeners have been notified, or cancelled if the message is dropped
+     */
+    void publishTracked(Publisher publisher, ErrorHandler errorHandler, SubscriptionManager subscriptionManager, Object message1,
+                        CompletableFuture<Void> completion);
 }
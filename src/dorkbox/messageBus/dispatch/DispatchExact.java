@@ -15,7 +15,8 @@
  */
 package dorkbox.messageBus.dispatch;
 
-import dorkbox.messageBus.error.DeadMessage;
+import java.util.concurrent.CompletableFuture;
+
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.publication.Publisher;
 import dorkbox.messageBus.subscription.Subscription;
@@ -44,31 +45,7 @@ class DispatchExact implements Dispatch {
 
         final Subscription[] subscriptions = subManager.getSubs(messageClass1); // can return null
 
-        Subscription sub;
-        int subLength;
-        boolean hasSubs = false;
-
-        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
-        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = subscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1);
-            }
-        }
-
-        if (!hasSubs) {
-            // Dead Event must EXACTLY MATCH (no subclasses)
-            final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
-            if (deadSubscriptions != null) {
-                final DeadMessage deadMessage = new DeadMessage(message1);
-                for (int i = 0; i < deadSubscriptions.length; i++) {
-                    sub = deadSubscriptions[i];
-                    sub.publish(publisher, errorHandler, deadMessage);
-                }
-            }
-        }
+        publisher.publish(errorHandler, subManager, subscriptions, null, message1);
     }
 
     @Override
@@ -81,31 +58,7 @@ class DispatchExact implements Dispatch {
 
         final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2); // can return null
 
-        Subscription sub;
-        int subLength;
-        boolean hasSubs = false;
-
-        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
-        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = subscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1, message2);
-            }
-        }
-
-        if (!hasSubs) {
-            // Dead Event must EXACTLY MATCH (no subclasses)
-            final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
-            if (deadSubscriptions != null) {
-                final DeadMessage deadMessage = new DeadMessage(message1, message2);
-                for (int i = 0; i < deadSubscriptions.length; i++) {
-                    sub = deadSubscriptions[i];
-                    sub.publish(publisher, errorHandler, deadMessage);
-                }
-            }
-        }
+        publisher.publish(errorHandler, subManager, subscriptions, null, message1, message2);
     }
 
     @Override
@@ -119,30 +72,56 @@ class DispatchExact implements Dispatch {
 
         final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2, messageClass3); // can return null
 
-        Subscription sub;
-        int subLength;
-        boolean hasSubs = false;
-
-        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
-        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = subscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1, message2, message3);
-            }
-        }
+        publisher.publish(errorHandler, subManager, subscriptions, null, message1, message2, message3);
+    }
+
+    @Override
+    public
+    boolean tryPublish(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
+                       final Object message1, final long timeoutNanos) {
+
+        final Class<?> messageClass1 = message1.getClass();
+
+        final Subscription[] subscriptions = subManager.getSubs(messageClass1); // can return null
+
+        return publisher.tryPublish(errorHandler, subManager, subscriptions, null, message1, timeoutNanos);
+    }
+
+    @Override
+    public
+    void publishTracked(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
+                        final Object message1, final CompletableFuture<Void> completion) {
+
+        final Class<?> messageClass1 = message1.getClass();
+
+        final Subscription[] subscriptions = subManager.getSubs(messageClass1); // can return null
 
-        if (!hasSubs) {
-            // Dead Event must EXACTLY MATCH (no subclasses)
-            final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
-            if (deadSubscriptions != null) {
-                final DeadMessage deadMessage = new DeadMessage(message1, message2, message3);
-                for (int i = 0; i < deadSubscriptions.length; i++) {
-                    sub = deadSubscriptions[i];
-                    sub.publish(publisher, errorHandler, deadMessage);
-                }
+        publisher.publishTracked(errorHandler, subManager, subscriptions, null, message1, completion);
+    }
+
+    @Override
+    public
+    void publishBatch(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
+                      final Object[] messages) {
+
+        final int length = messages.length;
+        final Subscription[][] subscriptions = new Subscription[length][];
+
+        Class<?> lastClass = null;
+        Subscription[] subs = null;
+
+        for (int i = 0; i < length; i++) {
+            final Class<?> messageClass = messages[i].getClass();
+
+            // bulk publications are nearly always of the same type, so only resolve the subscriptions when the type changes
+            if (messageClass != lastClass) {
+                lastClass = messageClass;
+                subs = subManager.getSubs(messageClass); // can return null
             }
+
+            subscriptions[i] = subs;
         }
+
+        publisher.publishBatch(errorHandler, subManager, subscriptions, messages);
     }
 }
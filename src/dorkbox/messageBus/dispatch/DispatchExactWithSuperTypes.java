@@ -15,13 +15,19 @@
  */
 package dorkbox.messageBus.dispatch;
 
+import java.util.concurrent.CompletableFuture;
+
 import dorkbox.messageBus.error.DeadMessage;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.publication.Publisher;
+import dorkbox.messageBus.subscription.DispatchPlan;
 import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.subscription.SubscriptionManager;
 
 /**
+ * The exact and super type subscriptions (or the dead message subscriptions, if there are none) are resolved with a single lookup of
+ * the {@link DispatchPlan} for the message type.
+ *
  * @author dorkbox, llc
  *         Date: 2/2/15
  */
@@ -38,140 +44,99 @@ class DispatchExactWithSuperTypes implements Dispatch {
     void publish(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
                  final Object message1) {
 
-        final Class<?> messageClass1 = message1.getClass();
+        final DispatchPlan plan = subManager.getPlan(message1.getClass()); // NOT return null
 
-        final Subscription[] subscriptions = subManager.getSubs(messageClass1); // can return null
-        final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1); // NOT return null
+        if (plan.isDead()) {
+            publisher.publish(errorHandler, subManager, plan.getSubscriptions(), null, new DeadMessage(message1));
+        } else {
+            publisher.publish(errorHandler, subManager, plan.getSubscriptions(), null, message1);
+        }
+    }
 
-        Subscription sub;
-        int subLength;
-        boolean hasSubs = false;
 
-        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
-        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = subscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1);
-            }
-        }
+    @Override
+    public
+    void publish(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
+                 final Object message1, final Object message2) {
 
-        if ((subLength = superSubscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = superSubscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1);
-            }
-        }
+        final DispatchPlan plan = subManager.getPlan(message1.getClass(), message2.getClass()); // NOT return null
 
-        if (!hasSubs) {
-            // Dead Event must EXACTLY MATCH (no subclasses)
-            final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
-            if (deadSubscriptions != null) {
-                final DeadMessage deadMessage = new DeadMessage(message1);
-                for (int i = 0; i < deadSubscriptions.length; i++) {
-                    sub = deadSubscriptions[i];
-                    sub.publish(publisher, errorHandler, deadMessage);
-                }
-            }
+        if (plan.isDead()) {
+            publisher.publish(errorHandler, subManager, plan.getSubscriptions(), null, new DeadMessage(message1, message2));
+        } else {
+            publisher.publish(errorHandler, subManager, plan.getSubscriptions(), null, message1, message2);
         }
     }
 
-
     @Override
     public
     void publish(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
-                 final Object message1, final Object message2) {
+                 final Object message1, final Object message2, final Object message3) {
 
-        final Class<?> messageClass1 = message1.getClass();
-        final Class<?> messageClass2 = message2.getClass();
+        final DispatchPlan plan = subManager.getPlan(message1.getClass(), message2.getClass(), message3.getClass()); // NOT return null
 
-        final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2); // can return null
-        final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1, messageClass2); // NOT return null
+        if (plan.isDead()) {
+            publisher.publish(errorHandler, subManager, plan.getSubscriptions(), null, new DeadMessage(message1, message2, message3));
+        } else {
+            publisher.publish(errorHandler, subManager, plan.getSubscriptions(), null, message1, message2, message3);
+        }
+    }
 
-        Subscription sub;
-        int subLength;
-        boolean hasSubs = false;
+    @Override
+    public
+    boolean tryPublish(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
+                       final Object message1, final long timeoutNanos) {
 
-        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
-        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = subscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1, message2);
-            }
-        }
+        final DispatchPlan plan = subManager.getPlan(message1.getClass()); // NOT return null
 
-        if ((subLength = superSubscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = superSubscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1, message2);
-            }
+        if (plan.isDead()) {
+            return publisher.tryPublish(errorHandler, subManager, plan.getSubscriptions(), null, new DeadMessage(message1), timeoutNanos);
+        } else {
+            return publisher.tryPublish(errorHandler, subManager, plan.getSubscriptions(), null, message1, timeoutNanos);
         }
+    }
 
-        if (!hasSubs) {
-            // Dead Event must EXACTLY MATCH (no subclasses)
-            final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
-            if (deadSubscriptions != null) {
-                final DeadMessage deadMessage = new DeadMessage(message1, message2);
-                for (int i = 0; i < deadSubscriptions.length; i++) {
-                    sub = deadSubscriptions[i];
-                    sub.publish(publisher, errorHandler, deadMessage);
-                }
-            }
+    @Override
+    public
+    void publishTracked(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
+                        final Object message1, final CompletableFuture<Void> completion) {
+
+        final DispatchPlan plan = subManager.getPlan(message1.getClass()); // NOT return null
+
+        if (plan.isDead()) {
+            publisher.publishTracked(errorHandler, subManager, plan.getSubscriptions(), null, new DeadMessage(message1), completion);
+        } else {
+            publisher.publishTracked(errorHandler, subManager, plan.getSubscriptions(), null, message1, completion);
         }
     }
 
     @Override
     public
-    void publish(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
-                 final Object message1, final Object message2, final Object message3) {
+    void publishBatch(final Publisher publisher, final ErrorHandler errorHandler, final SubscriptionManager subManager,
+                      final Object[] messages) {
 
-        final Class<?> messageClass1 = message1.getClass();
-        final Class<?> messageClass2 = message2.getClass();
-        final Class<?> messageClass3 = message3.getClass();
+        final int length = messages.length;
+        final Subscription[][] subscriptions = new Subscription[length][];
 
-        final Subscription[] subscriptions = subManager.getSubs(messageClass1, messageClass2, messageClass3); // can return null
-        final Subscription[] superSubscriptions = subManager.getSuperSubs(messageClass1, messageClass2, messageClass3); // NOT return null
+        Class<?> lastClass = null;
+        Subscription[] subs = null;
 
-        Subscription sub;
-        int subLength;
-        boolean hasSubs = false;
+        for (int i = 0; i < length; i++) {
+            final Class<?> messageClass = messages[i].getClass();
 
-        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
-        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = subscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1, message2, message3);
-            }
-        }
+            // bulk publications are nearly always of the same type, so only resolve the subscriptions when the type changes
+            if (messageClass != lastClass) {
+                lastClass = messageClass;
 
-        if ((subLength = superSubscriptions.length) > 0) {
-            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
-            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
-            for (int i = 0; i < subLength; i++) {
-                sub = superSubscriptions[i];
-                hasSubs |= sub.publish(publisher, errorHandler, message1, message2, message3);
-            }
-        }
+                final DispatchPlan plan = subManager.getPlan(messageClass); // NOT return null
 
-        if (!hasSubs) {
-            // Dead Event must EXACTLY MATCH (no subclasses)
-            final Subscription[] deadSubscriptions = subManager.getSubs(DeadMessage.class); // can return null
-            if (deadSubscriptions != null) {
-                final DeadMessage deadMessage = new DeadMessage(message1, message2, message3);
-                for (int i = 0; i < deadSubscriptions.length; i++) {
-                    sub = deadSubscriptions[i];
-                    sub.publish(publisher, errorHandler, deadMessage);
-                }
+                // the messages are not replaced with dead messages here, so the publisher takes care of dead messages instead
+                subs = plan.isDead() ? null : plan.getSubscriptions();
             }
+
+            subscriptions[i] = subs;
         }
+
+        publisher.publishBatch(errorHandler, subManager, subscriptions, messages);
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.publication;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Exponential back-off for threads that wait on the async workers (or mailboxes), so that waiting does not burn a CPU core.
+ */
+public final
+class Backoff {
+    public static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    public static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Parks the current thread, but never past the deadline.
+     *
+     * @return how long to park the next time, or -1 if the deadline has passed (or the thread was interrupted)
+     */
+    public static
+    long park(final long parkNanos, final long deadline) {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0L || Thread.currentThread().isInterrupted()) {
+            return -1L;
+        }
+
+        LockSupport.parkNanos(Math.min(parkNanos, remaining));
+        return Math.min(parkNanos << 1, MAX_PARK_NANOS);
+    }
+
+    private
+    Backoff() {
+    }
+}
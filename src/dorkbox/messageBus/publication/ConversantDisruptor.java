@@ -16,75 +16,216 @@
 package dorkbox.messageBus.publication;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.conversantmedia.util.concurrent.DisruptorBlockingQueue;
 import com.conversantmedia.util.concurrent.SpinPolicy;
 import com.esotericsoftware.reflectasm.MethodAccess;
 
+import dorkbox.messageBus.AsyncWaitStrategy;
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.OverflowPolicy;
 import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.publication.disruptor.MessageHandler;
+import dorkbox.messageBus.publication.disruptor.MessageHolder;
+import dorkbox.messageBus.publication.disruptor.MessageType;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
 import dorkbox.messageBus.subscription.asm.AsmInvocation;
 import dorkbox.messageBus.subscription.reflection.ReflectionInvocation;
-import dorkbox.util.NamedThreadFactory;
 
+/**
+ * This does not allocate anything during publication.
+ * <p>
+ * All of the {@link MessageHolder}s are created up-front (one per slot in the queue), and are recycled through a second queue once the
+ * worker threads have finished with them. When all of the holders are in use, the {@link OverflowPolicy} decides if the publisher
+ * blocks (which is the same back-pressure as when the ring buffer for the LMAX Disruptor is full), or if a message is dropped.
+ *
+ * @author dorkbox, llc
+ */
 public
 class ConversantDisruptor implements Publisher {
 
-    private final Publisher syncPublisher;
     private final ThreadPoolExecutor threadExecutor;
-    private final DisruptorBlockingQueue<Runnable> workQueue;
+    private final Worker[] workers;
+
+    private final int queueCapacity;
+
+    private final Publisher syncPublisher;
+    private final OverflowPolicy overflowPolicy;
+    private final long shutdownTimeoutNanos;
+
+    // how many messages have been queued, and how many of those have been dropped (the workers count how many they have processed)
+    private final LongAdder queued;
+    private final LongAdder dropped;
+
+    // holders waiting to be processed by the worker threads
+    private final DisruptorBlockingQueue<MessageHolder> workQueue;
 
+    // holders that are free to be used for publication
+    private final DisruptorBlockingQueue<MessageHolder> freeQueue;
+
+    /**
+     * @return the Conversant spin policy for the specified (typed) wait strategy
+     */
+    private static
+    SpinPolicy getSpinPolicy(final AsyncWaitStrategy waitStrategy) {
+        switch (waitStrategy) {
+            case BusySpin:
+                return SpinPolicy.SPINNING;
+            case Blocking:
+                return SpinPolicy.BLOCKING;
+            case Yielding:
+            case Sleeping:
+            case PhasedBackoff:
+            default:
+                return SpinPolicy.WAITING;
+        }
+    }
+
+    /**
+     * @param config the number of threads, queue size (always a power of 2), wait strategy and thread factory to use
+     */
     public
-    ConversantDisruptor(final int numberOfThreads) {
-        this.syncPublisher = new DirectInvocation();
+    ConversantDisruptor(final MessageBusConfig config) {
+        final int numberOfThreads = config.getNumberOfThreads();
+        final SpinPolicy spinPolicy = getSpinPolicy(config.getWaitStrategy());
+
+        queueCapacity = config.getQueueCapacity();
+        overflowPolicy = config.getOverflowPolicy();
+        shutdownTimeoutNanos = config.getShutdownTimeoutNanos();
+        queued = new LongAdder();
+        dropped = new LongAdder();
+        syncPublisher = new DirectInvocation(!config.getLanes().isEmpty());
 
-        // ALWAYS round to the nearest power of 2
-        int minQueueCapacity = 1 << (32 - Integer.numberOfLeadingZeros(numberOfThreads));
+        workQueue = new DisruptorBlockingQueue<MessageHolder>(queueCapacity, spinPolicy);
+        freeQueue = new DisruptorBlockingQueue<MessageHolder>(queueCapacity, spinPolicy);
+
+        for (int i = 0; i < queueCapacity; i++) {
+            freeQueue.offer(new MessageHolder());
+        }
+
+        // this queue only ever holds the Workers (one per thread). ALWAYS round to the nearest power of 2
+        int minExecutorCapacity = 1 << (32 - Integer.numberOfLeadingZeros(numberOfThreads));
 
-        workQueue = new DisruptorBlockingQueue<>(minQueueCapacity, SpinPolicy.WAITING);
         threadExecutor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
-                                                0L, TimeUnit.MILLISECONDS, workQueue,
-                                                new NamedThreadFactory("MessageBus",  true));
+                                                0L, TimeUnit.MILLISECONDS,
+                                                new DisruptorBlockingQueue<Runnable>(minExecutorCapacity, SpinPolicy.WAITING),
+                                                config.getThreadFactory());
+
+        // setup the workers, exactly one handler per thread is used
+        workers = new Worker[numberOfThreads];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(new MessageHandler(syncPublisher), workQueue, freeQueue);
+            threadExecutor.execute(workers[i]);
+        }
     }
 
     public
     ConversantDisruptor(final ConversantDisruptor publisher) {
-        this.syncPublisher = publisher.syncPublisher;
         this.threadExecutor = publisher.threadExecutor;
+        this.workers = publisher.workers;
+        this.queueCapacity = publisher.queueCapacity;
         this.workQueue = publisher.workQueue;
+        this.freeQueue = publisher.freeQueue;
+        this.syncPublisher = publisher.syncPublisher;
+        this.overflowPolicy = publisher.overflowPolicy;
+        this.shutdownTimeoutNanos = publisher.shutdownTimeoutNanos;
+        this.queued = publisher.queued;
+        this.dropped = publisher.dropped;
+    }
+
+    /**
+     * @return a free holder, or null if the queue is full and the overflow policy does not permit waiting
+     */
+    private
+    MessageHolder claim() {
+        MessageHolder job;
+
+        switch (overflowPolicy) {
+            case Block:
+                return take();
+
+            case DropOldest:
+                job = freeQueue.poll();
+                if (job == null) {
+                    // discard the oldest message that is still waiting, and reuse its holder
+                    job = workQueue.poll();
+                    if (job != null) {
+                        if (job.completion != null) {
+                            job.completion.cancel(false);
+                        }
+                        job.clear();
+                        dropped.increment();
+                    }
+                    else {
+                        // every holder is being processed right now, so there is nothing to drop
+                        job = take();
+                    }
+                }
+                return job;
+
+            case DropNewest:
+            case CallerRuns:
+            default:
+                return freeQueue.poll();
+        }
+    }
+
+    /**
+     * Hands the holder to the worker threads
+     */
+    private
+    void queue(final MessageHolder job) {
+        queued.increment();
+
+        // never fails, there are never more holders than the capacity of the queue
+        workQueue.offer(job);
+    }
+
+    /**
+     * Waits (if necessary) until a holder is free. This is not interruptible (the same as claiming a slot in the LMAX ring buffer), however
+     * the interrupt status of the thread is preserved.
+     */
+    private
+    MessageHolder take() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return freeQueue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
 
-    // ASM
+    // ASM and REFLECTION (only the handlers are invoked per listener, and that is always on the thread that fans out the message)
     @Override
     public
     void publish(final ErrorHandler errorHandler,
                  final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
                  final Object message) {
-        threadExecutor.submit(new Runnable() {
-            @Override
-            public
-            void run() {
-                syncPublisher.publish(errorHandler,invocation, listener, handler, handleIndex, message);
-            }
-        });
+        throw perListener();
     }
 
     @Override
     public
     void publish(final ErrorHandler errorHandler,
                  final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
-                 final Object message1,
-                 final Object message2) {
-
-        threadExecutor.submit(new Runnable() {
-            @Override
-            public
-            void run() {
-                syncPublisher.publish(errorHandler,invocation, listener, handler, handleIndex, message1, message2);
-            }
-        });
+                 final Object message1, final Object message2) {
+        throw perListener();
     }
 
     @Override
@@ -92,74 +233,319 @@ class ConversantDisruptor implements Publisher {
     void publish(final ErrorHandler errorHandler,
                  final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
                  final Object message1, final Object message2, final Object message3) {
-
-        threadExecutor.submit(new Runnable() {
-            @Override
-            public
-            void run() {
-                syncPublisher.publish(errorHandler,invocation, listener, handler, handleIndex, message1, message2, message3);
-            }
-        });
+        throw perListener();
     }
 
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message) {
+        throw perListener();
+    }
 
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message1, final Object message2) {
+        throw perListener();
+    }
 
-    // REFLECTION
     @Override
     public
     void publish(final ErrorHandler errorHandler,
                  final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message1, final Object message2, final Object message3) {
+        throw perListener();
+    }
+
+    /**
+     * Async messages are always queued once per publication (DISPATCH), and never once per listener.
+     */
+    private static
+    UnsupportedOperationException perListener() {
+        return new UnsupportedOperationException("Async publishers only accept resolved subscriptions, not single listeners.");
+    }
+
+
+    // DISPATCH
+    @SuppressWarnings("Duplicates")
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
                  final Object message) {
 
-        threadExecutor.submit(new Runnable() {
-            @Override
-            public
-            void run() {
-                syncPublisher.publish(errorHandler,invocation, listener, method, message);
+        MessageHolder job = claim();
+        if (job == null) {
+            if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message);
             }
-        });
+            return;
+        }
+
+        job.type = MessageType.DISPATCH_ONE;
+
+        job.errorHandler = errorHandler;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
+
+        job.message1 = message;
+
+        queue(job);
     }
 
+    @SuppressWarnings("Duplicates")
     @Override
     public
-    void publish(final ErrorHandler errorHandler,
-                 final ReflectionInvocation invocation, final Object listener, final Method method,
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
                  final Object message1, final Object message2) {
 
-        threadExecutor.submit(new Runnable() {
-            @Override
-            public
-            void run() {
-                syncPublisher.publish(errorHandler,invocation, listener, method, message1, message2);
+        MessageHolder job = claim();
+        if (job == null) {
+            if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2);
             }
-        });
+            return;
+        }
+
+        job.type = MessageType.DISPATCH_TWO;
+
+        job.errorHandler = errorHandler;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
+
+        job.message1 = message1;
+        job.message2 = message2;
+
+        queue(job);
     }
 
+    @SuppressWarnings("Duplicates")
     @Override
     public
-    void publish(final ErrorHandler errorHandler,
-                 final ReflectionInvocation invocation, final Object listener, final Method method,
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
                  final Object message1, final Object message2, final Object message3) {
 
-        threadExecutor.submit(new Runnable() {
-            @Override
-            public
-            void run() {
-                syncPublisher.publish(errorHandler,invocation, listener, method, message1, message2, message3);
+        MessageHolder job = claim();
+        if (job == null) {
+            if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2, message3);
+            }
+            return;
+        }
+
+        job.type = MessageType.DISPATCH_THREE;
+
+        job.errorHandler = errorHandler;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
+
+        job.message1 = message1;
+        job.message2 = message2;
+        job.message3 = message3;
+
+        queue(job);
+    }
+
+
+    // BATCH
+    @Override
+    public
+    void publishBatch(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                      final Subscription[][] subscriptions, final Object[] messages) {
+
+        for (int i = 0; i < messages.length; i++) {
+            publish(errorHandler, subscriptionManager, subscriptions[i], null, messages[i]);
+        }
+    }
+
+
+    // TRACKED
+    @Override
+    public
+    void publishTracked(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                        final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                        final Object message, final CompletableFuture<Void> completion) {
+
+        MessageHolder job = claim();
+        if (job == null) {
+            if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publishTracked(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message, completion);
+            } else {
+                completion.cancel(false);
+            }
+            return;
+        }
+
+        job.type = MessageType.DISPATCH_TRACKED;
+
+        job.errorHandler = errorHandler;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
+
+        job.message1 = message;
+        job.completion = completion;
+
+        queue(job);
+    }
+
+
+    // TRY
+    @Override
+    public
+    boolean tryPublish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                       final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                       final Object message, final long timeoutNanos) {
+
+        MessageHolder job;
+        if (timeoutNanos <= 0L) {
+            job = freeQueue.poll();
+        }
+        else {
+            try {
+                job = freeQueue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job = null;
+            }
+        }
+
+        if (job == null) {
+            return false;
+        }
+
+        job.type = MessageType.DISPATCH_ONE;
+
+        job.errorHandler = errorHandler;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
+
+        job.message1 = message;
+
+        queue(job);
+        return true;
+    }
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeoutNanos) {
+        // every message queued before now is included in this count
+        final long target = queued.sum();
+
+        final long deadline = System.nanoTime() + timeoutNanos;
+        long parkNanos = Backoff.MIN_PARK_NANOS;
+        while (getProcessedCount() < target) {
+            parkNanos = Backoff.park(parkNanos, deadline);
+            if (parkNanos < 0) {
+                return false;
             }
-        });
+        }
+
+        return true;
+    }
+
+    // dropped messages are also "processed"
+    private
+    long getProcessedCount() {
+        long count = dropped.sum();
+        for (Worker worker : workers) {
+            count += worker.processed.get();
+        }
+        return count;
+    }
+
+    @Override
+    public
+    long pendingCount() {
+        // holders are only returned to the free queue AFTER the message has been processed
+        return queueCapacity - freeQueue.size();
+    }
+
+    @Override
+    public
+    long remainingCapacity() {
+        return freeQueue.size();
     }
 
     @Override
     public
     boolean hasPendingMessages() {
-        return threadExecutor.getActiveCount() > 0 || workQueue.isEmpty();
+        return pendingCount() > 0L;
     }
 
     @Override
     public
     void shutdown() {
+        // let the messages that have already been queued finish
+        awaitQuiescence(shutdownTimeoutNanos);
+
         // This uses Thread.interrupt()
         threadExecutor.shutdownNow();
     }
+
+
+    /**
+     * Consumes messages from the work queue (one at a time), and returns the holder to the free queue once it has been processed.
+     */
+    private static final
+    class Worker implements Runnable {
+        private final MessageHandler handler;
+        private final DisruptorBlockingQueue<MessageHolder> workQueue;
+        private final DisruptorBlockingQueue<MessageHolder> freeQueue;
+
+        // only modified by the worker thread
+        private final AtomicLong processed = new AtomicLong();
+
+        Worker(final MessageHandler handler,
+               final DisruptorBlockingQueue<MessageHolder> workQueue,
+               final DisruptorBlockingQueue<MessageHolder> freeQueue) {
+            this.handler = handler;
+            this.workQueue = workQueue;
+            this.freeQueue = freeQueue;
+        }
+
+        @Override
+        public
+        void run() {
+            handler.onStart();
+
+            try {
+                while (true) {
+                    final MessageHolder job = workQueue.take();
+
+                    try {
+                        handler.onEvent(job);
+                    } catch (Throwable e) {
+                        if (job.completion != null) {
+                            job.completion.completeExceptionally(e);
+                        }
+                        job.errorHandler.handlePublicationError(new PublicationError().setMessage("Exception processing async message")
+                                                                                      .setCause(e)
+                                                                                      .setPublishedObject(job.message1,
+                                                                                                          job.message2,
+                                                                                                          job.message3));
+                        job.clear();
+                    }
+
+                    processed.lazySet(processed.get() + 1);
+
+                    // never fails, there are never more holders than the capacity of the queue
+                    freeQueue.offer(job);
+                }
+            } catch (InterruptedException ignored) {
+                // we are shutting down
+            } finally {
+                handler.onShutdown();
+            }
+        }
+    }
 }
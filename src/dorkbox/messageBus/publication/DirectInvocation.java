@@ -16,19 +16,160 @@
 package dorkbox.messageBus.publication;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 
 import com.esotericsoftware.reflectasm.MethodAccess;
 
+import dorkbox.messageBus.error.DeadMessage;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
 import dorkbox.messageBus.subscription.asm.AsmInvocation;
 import dorkbox.messageBus.subscription.reflection.ReflectionInvocation;
 
+/**
+ * Invokes the message handlers on the calling thread.
+ * <p>
+ * This is also used by the async publishers, where the worker thread "fans out" the message to all of the subscriptions that were
+ * resolved by the thread that originally published the message. The async workers hand off the subscriptions that have a lane to the
+ * publisher for that lane, instead of invoking them.
+ */
+@SuppressWarnings("Duplicates")
 public
 class DirectInvocation implements Publisher {
 
+    // only the async workers hand off subscriptions to their lanes, synchronous publication always invokes the handlers directly
+    private final boolean useLanes;
+
     public
     DirectInvocation() {
+        this(false);
+    }
+
+    /**
+     * @param useLanes true if the subscriptions that have a lane are published via the publisher for that lane
+     */
+    public
+    DirectInvocation(final boolean useLanes) {
+        this.useLanes = useLanes;
+    }
+
+    /**
+     * @return true if the subscription is handed off to the publisher for its lane, instead of being invoked on this thread
+     */
+    private
+    boolean hasLane(final Subscription subscription) {
+        return useLanes && subscription.getLane() != null;
+    }
+
+    /**
+     * Hands off the subscriptions that have a lane to the publisher for that lane. Every lane is given a single publication that
+     * contains only its own subscriptions, so that each lane claims one slot in its queue (and applies its overflow policy) per message.
+     * <p>
+     * The lane does not publish dead messages, because the calling thread already knows if there were any listeners.
+     *
+     * @param laned how many of the subscriptions have a lane
+     * @param size how many messages are published
+     */
+    private static
+    void publishToLanes(final ErrorHandler errorHandler, final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                        final int laned, final int size, final Object message1, final Object message2, final Object message3) {
+
+        // only a single message can be tracked
+        final TrackedPublication tracked = TrackedPublication.current();
+
+        final Subscription[] remaining = new Subscription[laned];
+        int count = 0;
+
+        if (subscriptions != null) {
+            for (Subscription sub : subscriptions) {
+                if (sub.getLane() != null) {
+                    remaining[count++] = sub;
+                }
+            }
+        }
+
+        if (superSubscriptions != null) {
+            for (Subscription sub : superSubscriptions) {
+                if (sub.getLane() != null) {
+                    remaining[count++] = sub;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (remaining[i] == null) {
+                // already handed off, with another subscription for the same lane
+                continue;
+            }
+
+            final Publisher lane = remaining[i].getLane();
+
+            int laneSize = 0;
+            for (int j = i; j < count; j++) {
+                if (remaining[j] != null && remaining[j].getLane() == lane) {
+                    laneSize++;
+                }
+            }
+
+            final Subscription[] laneSubscriptions;
+            if (laneSize == count) {
+                // there is only one lane (the most common case)
+                laneSubscriptions = remaining;
+                i = count;
+            }
+            else {
+                laneSubscriptions = new Subscription[laneSize];
+                int index = 0;
+                for (int j = i; j < count; j++) {
+                    if (remaining[j] != null && remaining[j].getLane() == lane) {
+                        laneSubscriptions[index++] = remaining[j];
+                        remaining[j] = null;
+                    }
+                }
+            }
+
+            switch (size) {
+                case 1:
+                    if (tracked != null) {
+                        lane.publishTracked(errorHandler, null, laneSubscriptions, null, message1, tracked.handOff());
+                    }
+                    else {
+                        lane.publish(errorHandler, (SubscriptionManager) null, laneSubscriptions, null, message1);
+                    }
+                    break;
+                case 2:
+                    lane.publish(errorHandler, (SubscriptionManager) null, laneSubscriptions, null, message1, message2);
+                    break;
+                default:
+                    lane.publish(errorHandler, (SubscriptionManager) null, laneSubscriptions, null, message1, message2, message3);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Publishes the dead message to the subscriptions for {@link DeadMessage}, which can also have lanes.
+     */
+    private
+    void publishDeadMessage(final ErrorHandler errorHandler, final Subscription[] deadSubscriptions, final DeadMessage deadMessage) {
+        Subscription sub;
+        int laned = 0;
+
+        for (int i = 0; i < deadSubscriptions.length; i++) {
+            sub = deadSubscriptions[i];
+            if (hasLane(sub)) {
+                laned++;
+            }
+            else {
+                sub.publish(this, errorHandler, deadMessage);
+            }
+        }
+
+        if (laned > 0) {
+            publishToLanes(errorHandler, deadSubscriptions, null, laned, 1, deadMessage, null, null);
+        }
     }
 
     // ASM
@@ -128,6 +269,239 @@ class DirectInvocation implements Publisher {
     }
 
 
+    // DISPATCH
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message) {
+
+        Subscription sub;
+        int subLength;
+        boolean hasSubs = false;
+        int laned = 0;
+
+        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+            for (int i = 0; i < subLength; i++) {
+                sub = subscriptions[i];
+                if (hasLane(sub)) {
+                    // handed off below, after the handlers on this thread
+                    hasSubs |= sub.hasListeners();
+                    laned++;
+                }
+                else {
+                    hasSubs |= sub.publish(this, errorHandler, message);
+                }
+            }
+        }
+
+        if (superSubscriptions != null && (subLength = superSubscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = superSubscriptions[i];
+                if (hasLane(sub)) {
+                    // handed off below, after the handlers on this thread
+                    hasSubs |= sub.hasListeners();
+                    laned++;
+                }
+                else {
+                    hasSubs |= sub.publish(this, errorHandler, message);
+                }
+            }
+        }
+
+        if (laned > 0) {
+            publishToLanes(errorHandler, subscriptions, superSubscriptions, laned, 1, message, null, null);
+        }
+
+        // a lane is only given its own subscriptions (without the subscription manager), and never publishes dead messages
+        if (!hasSubs && subscriptionManager != null) {
+            // Dead Event must EXACTLY MATCH (no subclasses)
+            final Subscription[] deadSubscriptions = subscriptionManager.getSubs(DeadMessage.class); // can return null
+            if (deadSubscriptions != null) {
+                publishDeadMessage(errorHandler, deadSubscriptions, new DeadMessage(message));
+            }
+        }
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2) {
+
+        Subscription sub;
+        int subLength;
+        boolean hasSubs = false;
+        int laned = 0;
+
+        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+            for (int i = 0; i < subLength; i++) {
+                sub = subscriptions[i];
+                if (hasLane(sub)) {
+                    // handed off below, after the handlers on this thread
+                    hasSubs |= sub.hasListeners();
+                    laned++;
+                }
+                else {
+                    hasSubs |= sub.publish(this, errorHandler, message1, message2);
+                }
+            }
+        }
+
+        if (superSubscriptions != null && (subLength = superSubscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = superSubscriptions[i];
+                if (hasLane(sub)) {
+                    // handed off below, after the handlers on this thread
+                    hasSubs |= sub.hasListeners();
+                    laned++;
+                }
+                else {
+                    hasSubs |= sub.publish(this, errorHandler, message1, message2);
+                }
+            }
+        }
+
+        if (laned > 0) {
+            publishToLanes(errorHandler, subscriptions, superSubscriptions, laned, 2, message1, message2, null);
+        }
+
+        // a lane is only given its own subscriptions (without the subscription manager), and never publishes dead messages
+        if (!hasSubs && subscriptionManager != null) {
+            // Dead Event must EXACTLY MATCH (no subclasses)
+            final Subscription[] deadSubscriptions = subscriptionManager.getSubs(DeadMessage.class); // can return null
+            if (deadSubscriptions != null) {
+                publishDeadMessage(errorHandler, deadSubscriptions, new DeadMessage(message1, message2));
+            }
+        }
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2, final Object message3) {
+
+        Subscription sub;
+        int subLength;
+        boolean hasSubs = false;
+        int laned = 0;
+
+        // Run subscriptions. if the subscriptions are NULL or length == 0, it means we don't have any that were ever subscribed.
+        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+            // even though they are non-null, and have length > 0 --- it is still possible the subscription was REMOVED at some point.
+            // so there won't be any object/method this publishes to AND there won't be any "dead messages" triggered
+            for (int i = 0; i < subLength; i++) {
+                sub = subscriptions[i];
+                if (hasLane(sub)) {
+                    // handed off below, after the handlers on this thread
+                    hasSubs |= sub.hasListeners();
+                    laned++;
+                }
+                else {
+                    hasSubs |= sub.publish(this, errorHandler, message1, message2, message3);
+                }
+            }
+        }
+
+        if (superSubscriptions != null && (subLength = superSubscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = superSubscriptions[i];
+                if (hasLane(sub)) {
+                    // handed off below, after the handlers on this thread
+                    hasSubs |= sub.hasListeners();
+                    laned++;
+                }
+                else {
+                    hasSubs |= sub.publish(this, errorHandler, message1, message2, message3);
+                }
+            }
+        }
+
+        if (laned > 0) {
+            publishToLanes(errorHandler, subscriptions, superSubscriptions, laned, 3, message1, message2, message3);
+        }
+
+        // a lane is only given its own subscriptions (without the subscription manager), and never publishes dead messages
+        if (!hasSubs && subscriptionManager != null) {
+            // Dead Event must EXACTLY MATCH (no subclasses)
+            final Subscription[] deadSubscriptions = subscriptionManager.getSubs(DeadMessage.class); // can return null
+            if (deadSubscriptions != null) {
+                publishDeadMessage(errorHandler, deadSubscriptions, new DeadMessage(message1, message2, message3));
+            }
+        }
+    }
+
+
+    // BATCH
+    @Override
+    public
+    void publishBatch(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                      final Subscription[][] subscriptions, final Object[] messages) {
+
+        for (int i = 0; i < messages.length; i++) {
+            publish(errorHandler, subscriptionManager, subscriptions[i], null, messages[i]);
+        }
+    }
+
+
+    // TRY
+    @Override
+    public
+    boolean tryPublish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                       final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                       final Object message, final long timeoutNanos) {
+
+        publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message);
+        return true;
+    }
+
+
+    // TRACKED
+    @Override
+    public
+    void publishTracked(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                        final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                        final Object message, final CompletableFuture<Void> completion) {
+
+        // the handlers that are handed off (to a lane or a mailbox) are counted, and the future is completed once they have all run
+        final TrackedPublication previous = TrackedPublication.begin(completion);
+        try {
+            publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message);
+        } catch (Throwable e) {
+            TrackedPublication.current().fail(e);
+        } finally {
+            TrackedPublication.end(previous);
+        }
+    }
+
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeoutNanos) {
+        // everything is published synchronously
+        return true;
+    }
+
+    @Override
+    public
+    long pendingCount() {
+        return 0L;
+    }
+
+    @Override
+    public
+    long remainingCapacity() {
+        // there is no queue
+        return Long.MAX_VALUE;
+    }
+
     public
     boolean hasPendingMessages() {
         return false;
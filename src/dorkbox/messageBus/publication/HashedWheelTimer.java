@@ -0,0 +1,391 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.publication;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.ScheduledPublication;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+
+/**
+ * Runs tasks after a delay (or periodically) using a hashed timing wheel, so that scheduling and cancelling are O(1), no matter how many
+ * tasks are waiting.
+ * <p>
+ * The wheel is an array of buckets, each of which covers one tick. A task is added to the bucket that its deadline falls into, along
+ * with how many more rotations of the wheel are needed before it expires. A single thread advances the wheel once per tick, and runs
+ * the expired tasks of the current bucket. This means a task runs up to one tick later than its deadline.
+ * <p>
+ * New tasks are handed to the timer thread via a lock-free queue, so only the timer thread ever touches the buckets. The timer thread
+ * is only started when the first task is scheduled.
+ *
+ * @author dorkbox, llc
+ */
+public
+class HashedWheelTimer {
+
+    private static final int WHEEL_SIZE = 512; // must be a power of 2
+
+    private final ErrorHandler errorHandler;
+    private final ThreadFactory threadFactory;
+    private final long tickNanos;
+    private final long startTime;
+
+    // these are shared with copies
+    private final Bucket[] wheel;
+    private final ConcurrentLinkedQueue<Task> newTasks;
+    private final AtomicReference<Thread> threadREF;
+    private final Worker worker;
+
+    /**
+     * @param config the tick duration and the thread factory for the timer thread
+     * @param errorHandler where errors from the tasks are sent
+     */
+    public
+    HashedWheelTimer(final MessageBusConfig config, final ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+        this.threadFactory = config.getThreadFactory();
+        this.tickNanos = config.getTimerTickNanos();
+        this.startTime = System.nanoTime();
+
+        this.wheel = new Bucket[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket();
+        }
+
+        this.newTasks = new ConcurrentLinkedQueue<Task>();
+        this.threadREF = new AtomicReference<Thread>();
+        this.worker = new Worker();
+    }
+
+    public
+    HashedWheelTimer(final HashedWheelTimer timer) {
+        this.errorHandler = timer.errorHandler;
+        this.threadFactory = timer.threadFactory;
+        this.tickNanos = timer.tickNanos;
+        this.startTime = timer.startTime;
+
+        this.wheel = timer.wheel;
+        this.newTasks = timer.newTasks;
+        this.threadREF = timer.threadREF;
+        this.worker = timer.worker;
+    }
+
+    /**
+     * @param task returns false if it could not run yet, in which case a task that only runs once is run again on the next tick (and
+     *             can still be cancelled until then). A periodic task is always run again on its next period
+     * @param delayNanos how long to wait before the task is run
+     * @param periodNanos how long to wait between runs of the task, or 0 to only run the task once
+     *
+     * @throws IllegalStateException if the timer has been shutdown
+     */
+    public
+    ScheduledPublication schedule(final BooleanSupplier task, final long delayNanos, final long periodNanos) {
+        if (worker.shutdown) {
+            throw new IllegalStateException("The timer has been shutdown.");
+        }
+
+        Thread thread = threadREF.get();
+        if (thread == null) {
+            start();
+        }
+
+        final Task timeout = new Task(task, System.nanoTime() - startTime + Math.max(0L, delayNanos), periodNanos);
+        newTasks.offer(timeout);
+        return timeout;
+    }
+
+    private synchronized
+    void start() {
+        if (threadREF.get() == null && !worker.shutdown) {
+            final Thread thread = threadFactory.newThread(worker);
+            thread.start();
+            threadREF.set(thread);
+        }
+    }
+
+    /**
+     * Stops the timer thread. Every task that has not run yet is cancelled.
+     */
+    public synchronized
+    void shutdown() {
+        worker.shutdown = true;
+
+        final Thread thread = threadREF.get();
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // the timer thread is no longer running, so it is safe to access the buckets from here
+        for (Bucket bucket : wheel) {
+            Task task = bucket.head;
+            while (task != null) {
+                task.cancel();
+                task = task.next;
+            }
+            bucket.head = null;
+            bucket.tail = null;
+        }
+
+        Task task;
+        while ((task = newTasks.poll()) != null) {
+            task.cancel();
+        }
+    }
+
+
+    private static final
+    class Bucket {
+        private Task head;
+        private Task tail;
+
+        void add(final Task task) {
+            task.bucket = this;
+            if (head == null) {
+                head = tail = task;
+            }
+            else {
+                tail.next = task;
+                task.prev = tail;
+                tail = task;
+            }
+        }
+
+        /**
+         * @return the task after the removed task
+         */
+        Task remove(final Task task) {
+            final Task next = task.next;
+            if (task.prev != null) {
+                task.prev.next = next;
+            }
+            if (task.next != null) {
+                task.next.prev = task.prev;
+            }
+
+            if (task == head) {
+                head = next;
+            }
+            if (task == tail) {
+                tail = task.prev;
+            }
+
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+            return next;
+        }
+    }
+
+
+    private static final int ST_WAITING = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_DONE = 2;
+    private static final int ST_RUNNING = 3;
+
+    private static final AtomicIntegerFieldUpdater<Task> stateREF = AtomicIntegerFieldUpdater.newUpdater(Task.class, "state");
+
+    private static final
+    class Task implements ScheduledPublication {
+        private final BooleanSupplier task;
+        private final long periodNanos;
+
+        // relative to the start time of the timer. These are only touched by the timer thread (after the task was handed to it)
+        private long deadline;
+        private long remainingRounds;
+
+        private Task next;
+        private Task prev;
+        private Bucket bucket;
+
+        volatile int state = ST_WAITING;
+
+        Task(final BooleanSupplier task, final long deadline, final long periodNanos) {
+            this.task = task;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public
+        boolean cancel() {
+            // the cancelled task is removed from its bucket (by the timer thread) when the bucket is next expired
+            while (settledState() == ST_WAITING) {
+                if (stateREF.compareAndSet(this, ST_WAITING, ST_CANCELLED)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public
+        boolean isCancelled() {
+            return settledState() == ST_CANCELLED;
+        }
+
+        @Override
+        public
+        boolean isDone() {
+            final int state = settledState();
+            return state == ST_DONE || state == ST_CANCELLED;
+        }
+
+        /**
+         * While the timer thread is running a one-shot task, the message might already have been handled (on another thread) before the
+         * task is marked as done, or the task might be waiting again to retry. This is only ever a non-blocking publish, so it is
+         * waited out.
+         */
+        private
+        int settledState() {
+            int state;
+            while ((state = this.state) == ST_RUNNING) {
+                Thread.yield();
+            }
+            return state;
+        }
+    }
+
+
+    private
+    class Worker implements Runnable {
+        private volatile boolean shutdown = false;
+
+        // the tasks that run again, which are added back to the wheel once the current bucket has been expired
+        private final ArrayDeque<Task> rescheduled = new ArrayDeque<Task>();
+
+        @Override
+        public
+        void run() {
+            // the first tick covers the time between when the timer was created, and when this thread was started
+            long tick = (System.nanoTime() - startTime) / tickNanos;
+
+            while (!shutdown) {
+                // wait until the end of this tick
+                final long deadline = startTime + (tick + 1) * tickNanos;
+                long remaining;
+                while (!shutdown && (remaining = deadline - System.nanoTime()) > 0L) {
+                    LockSupport.parkNanos(remaining);
+                }
+
+                if (shutdown) {
+                    break;
+                }
+
+                transferNewTasks(tick);
+                expire(wheel[(int) (tick & (WHEEL_SIZE - 1))], tick);
+
+                Task task;
+                while ((task = rescheduled.poll()) != null) {
+                    add(task, tick + 1);
+                }
+
+                tick++;
+            }
+        }
+
+        private
+        void transferNewTasks(final long tick) {
+            Task task;
+            while ((task = newTasks.poll()) != null) {
+                if (task.state == ST_CANCELLED) {
+                    continue;
+                }
+
+                add(task, tick);
+            }
+        }
+
+        /**
+         * @param earliestTick the first tick whose bucket has not been expired yet. If the deadline is already in the past, the task
+         *                     is expired with this tick
+         */
+        private
+        void add(final Task task, final long earliestTick) {
+            final long ticks = Math.max(task.deadline / tickNanos, earliestTick);
+
+            // the rounds are counted from the first time that the bucket is expired, which is never before the earliest tick
+            task.remainingRounds = (ticks - earliestTick) / WHEEL_SIZE;
+            wheel[(int) (ticks & (WHEEL_SIZE - 1))].add(task);
+        }
+
+        private
+        void expire(final Bucket bucket, final long tick) {
+            Task task = bucket.head;
+            while (task != null) {
+                if (task.state == ST_CANCELLED) {
+                    task = bucket.remove(task);
+                }
+                else if (task.remainingRounds <= 0L) {
+                    final Task expired = task;
+                    task = bucket.remove(task);
+
+                    run(expired);
+                }
+                else {
+                    task.remainingRounds--;
+                    task = task.next;
+                }
+            }
+        }
+
+        private
+        void run(final Task task) {
+            final boolean once = task.periodNanos == 0L;
+            if (once && !stateREF.compareAndSet(task, ST_WAITING, ST_RUNNING)) {
+                // cancelled
+                return;
+            }
+
+            boolean finished = true;
+            try {
+                finished = task.task.getAsBoolean();
+            } catch (Throwable e) {
+                errorHandler.handlePublicationError(new PublicationError().setMessage("Error during scheduled publication.")
+                                                                          .setCause(e));
+            }
+
+            if (once) {
+                if (finished) {
+                    task.state = ST_DONE;
+                }
+                else {
+                    // the same task is run again on the next tick, so that the handle can still cancel it
+                    task.state = ST_WAITING;
+                    rescheduled.add(task);
+                }
+            }
+            else if (task.state == ST_WAITING) {
+                // fixed rate, so the next deadline is based on the previous deadline (and not on when it actually ran)
+                task.deadline += task.periodNanos;
+                rescheduled.add(task);
+            }
+        }
+    }
+}
@@ -16,38 +16,52 @@
 package dorkbox.messageBus.publication;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
 import com.conversantmedia.util.concurrent.DisruptorBlockingQueue;
 import com.conversantmedia.util.concurrent.SpinPolicy;
 import com.esotericsoftware.reflectasm.MethodAccess;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.LiteBlockingWaitStrategy;
 import com.lmax.disruptor.PhasedBackoffWaitStrategy;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.SleepingWaitStrategy;
 import com.lmax.disruptor.WaitStrategy;
 import com.lmax.disruptor.WorkProcessor;
+import com.lmax.disruptor.YieldingWaitStrategy;
 import com.lmax.disruptor.util.Util;
 
+import dorkbox.messageBus.AsyncWaitStrategy;
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.OverflowPolicy;
+import dorkbox.messageBus.ProducerType;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.publication.disruptor.EventBusFactory;
 import dorkbox.messageBus.publication.disruptor.MessageHandler;
 import dorkbox.messageBus.publication.disruptor.MessageHolder;
 import dorkbox.messageBus.publication.disruptor.MessageType;
 import dorkbox.messageBus.publication.disruptor.PublicationExceptionHandler;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
 import dorkbox.messageBus.subscription.asm.AsmInvocation;
 import dorkbox.messageBus.subscription.reflection.ReflectionInvocation;
-import dorkbox.util.NamedThreadFactory;
 
 /**
  * By default, it is the calling thread that has to get the subscriptions, which the sync/async logic then uses.
  *
  * The exception to this rule is when checking/calling DeadMessage publication.
  *
+ * When publishing the resolved subscriptions (DISPATCH), only a single slot in the ring buffer is claimed for the message, regardless
+ * of how many listeners there are. The worker thread then "fans out" the message to all the listeners.
+ *
  *
  * @author dorkbox, llc Date: 2/3/16
  */
@@ -61,24 +75,55 @@ class LmaxDisruptor implements Publisher {
     private final RingBuffer<MessageHolder> ringBuffer;
     private final Sequence workSequence;
 
-    public
-    LmaxDisruptor(final int numberOfThreads, final ErrorHandler errorHandler) {
-        // ALWAYS round to the nearest power of 2
-        int minQueueCapacity = 1 << (32 - Integer.numberOfLeadingZeros(numberOfThreads));
+    // the sequences used for processing work, these never change
+    private final Sequence[] sequences;
+
+    // null when there are multiple producers, otherwise (when assertions are enabled) the only thread permitted to publish
+    private final AtomicReference<Thread> producerThread;
+
+    private final Publisher syncPublisher;
+    private final OverflowPolicy overflowPolicy;
+
+    // returned by claim() when a worker (of this ring buffer) has to queue the message in its overflow instead
+    private static final long OVERFLOW = -2L;
+
+    private final long shutdownTimeoutNanos;
+
+    /**
+     * @return the LMAX wait strategy for the specified (typed) wait strategy
+     */
+    private static
+    WaitStrategy getWaitStrategy(final AsyncWaitStrategy waitStrategy) {
+        switch (waitStrategy) {
+            case BusySpin:
+                return new BusySpinWaitStrategy();  // best for low latency
+            case Yielding:
+                return new YieldingWaitStrategy();
+            case Sleeping:
+                return new SleepingWaitStrategy();
+            case Blocking:
+                return new LiteBlockingWaitStrategy();
+            case PhasedBackoff:
+            default:
+                return new PhasedBackoffWaitStrategy(10, 50, TimeUnit.MILLISECONDS, new LiteBlockingWaitStrategy()); // good combo
+        }
+    }
 
-//        final int minQueueCapacity = ringBufferSize * 64;
-//        final int minQueueCapacity = 1024 * 64;
-//        final int minQueueCapacity = 1024;
-        //final int minQueueCapacity = 32; // this one was previous. The best is generally based on how many workers there are
-//        final int minQueueCapacity = 16;
-//        final int minQueueCapacity = 8;
-//        final int minQueueCapacity = 4;
+    /**
+     * @param config the number of threads, ring buffer size (always a power of 2), wait strategy and thread factory to use
+     * @param errorHandler where errors during processing are sent
+     */
+    public
+    LmaxDisruptor(final MessageBusConfig config, final ErrorHandler errorHandler) {
+        final int numberOfThreads = config.getNumberOfThreads();
 
+        // this queue only ever holds the WorkProcessors (one per thread). ALWAYS round to the nearest power of 2
+        int minExecutorCapacity = 1 << (32 - Integer.numberOfLeadingZeros(numberOfThreads));
 
         threadExecutor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
                                                 0L, TimeUnit.MILLISECONDS,
-                                                new DisruptorBlockingQueue<Runnable>(minQueueCapacity, SpinPolicy.WAITING),
-                                                new NamedThreadFactory("MessageBus", true));
+                                                new DisruptorBlockingQueue<Runnable>(minExecutorCapacity, SpinPolicy.WAITING),
+                                                config.getThreadFactory());
 
 
         // Now we setup the disruptor and work handlers
@@ -86,25 +131,25 @@ class LmaxDisruptor implements Publisher {
         final PublicationExceptionHandler<MessageHolder> exceptionHandler = new PublicationExceptionHandler<MessageHolder>(errorHandler);
         EventBusFactory factory = new EventBusFactory();
 
+        overflowPolicy = config.getOverflowPolicy();
+        shutdownTimeoutNanos = config.getShutdownTimeoutNanos();
+
         // setup the work handlers
-        Publisher syncPublisher = new DirectInvocation();
+        syncPublisher = new DirectInvocation(!config.getLanes().isEmpty());
         handlers = new MessageHandler[numberOfThreads];
         for (int i = 0; i < handlers.length; i++) {
             handlers[i] = new MessageHandler(syncPublisher);  // exactly one per thread is used
         }
 
-        WaitStrategy consumerWaitStrategy;
-//        consumerWaitStrategy = new LiteBlockingWaitStrategy(); // good blocking one
-//        consumerWaitStrategy = new BlockingWaitStrategy();
-//        consumerWaitStrategy = new YieldingWaitStrategy();
-//        consumerWaitStrategy = new BusySpinWaitStrategy();  // best for low latency
-//        consumerWaitStrategy = new SleepingWaitStrategy();
-//        consumerWaitStrategy = new PhasedBackoffWaitStrategy(20, 50, TimeUnit.MILLISECONDS, new SleepingWaitStrategy(0));
-//        consumerWaitStrategy = new PhasedBackoffWaitStrategy(10, 50, TimeUnit.MILLISECONDS, new BlockingWaitStrategy());
-        consumerWaitStrategy = new PhasedBackoffWaitStrategy(10, 50, TimeUnit.MILLISECONDS, new LiteBlockingWaitStrategy()); // good combo
-
+        WaitStrategy consumerWaitStrategy = getWaitStrategy(config.getWaitStrategy());
 
-        ringBuffer = RingBuffer.createMultiProducer(factory, minQueueCapacity, consumerWaitStrategy);
+        if (config.getProducerType() == ProducerType.Single) {
+            ringBuffer = RingBuffer.createSingleProducer(factory, config.getQueueCapacity(), consumerWaitStrategy);
+            producerThread = new AtomicReference<Thread>();
+        } else {
+            ringBuffer = RingBuffer.createMultiProducer(factory, config.getQueueCapacity(), consumerWaitStrategy);
+            producerThread = null;
+        }
         SequenceBarrier sequenceBarrier = ringBuffer.newBarrier();
 
 
@@ -122,7 +167,7 @@ class LmaxDisruptor implements Publisher {
         }
 
         // setup the WorkProcessor sequences (control what is consumed from the ring buffer)
-        final Sequence[] sequences = getSequences();
+        sequences = getSequences();
         ringBuffer.addGatingSequences(sequences);
 
 
@@ -143,6 +188,92 @@ class LmaxDisruptor implements Publisher {
         this.handlers = publisher.handlers;
         this.ringBuffer = publisher.ringBuffer;
         this.workSequence = publisher.workSequence;
+        this.sequences = publisher.sequences;
+        this.producerThread = publisher.producerThread;
+        this.syncPublisher = publisher.syncPublisher;
+        this.overflowPolicy = publisher.overflowPolicy;
+        this.shutdownTimeoutNanos = publisher.shutdownTimeoutNanos;
+    }
+
+    /**
+     * @return the claimed sequence, -1 if the ring buffer is full and the overflow policy does not permit waiting, or
+     *         {@link #OVERFLOW} if the ring buffer is full and the calling thread is one of the workers
+     */
+    private
+    long claim() {
+        if (overflowPolicy == OverflowPolicy.Block) {
+            try {
+                return ringBuffer.tryNext();
+            } catch (InsufficientCapacityException e) {
+                // a worker that waits for space in the ring buffer might be waiting on itself, which would deadlock
+                if (currentWorker() != null) {
+                    return OVERFLOW;
+                }
+                return ringBuffer.next();
+            }
+        }
+
+        try {
+            return ringBuffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * @return the claimed sequence, or -1 if the ring buffer is still full after the timeout
+     */
+    private
+    long tryClaim(final long timeoutNanos) {
+        final long deadline = System.nanoTime() + timeoutNanos;
+
+        while (true) {
+            try {
+                return ringBuffer.tryNext();
+            } catch (InsufficientCapacityException e) {
+                if (timeoutNanos <= 0L || System.nanoTime() - deadline >= 0L) {
+                    return -1L;
+                }
+                LockSupport.parkNanos(1000L);
+            }
+        }
+    }
+
+    /**
+     * @return the worker (for this ring buffer) that is running on the current thread, or null if this is not one of our worker threads
+     */
+    private
+    MessageHandler currentWorker() {
+        final MessageHandler worker = MessageHandler.current();
+        if (worker != null) {
+            for (MessageHandler handler : handlers) {
+                if (handler == worker) {
+                    return worker;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Only called when assertions are enabled. The first thread to publish becomes the ONLY thread permitted to publish to a
+     * single-producer ring buffer.
+     */
+    private
+    boolean isValidProducer() {
+        if (producerThread == null) {
+            return true;
+        }
+
+        final Thread current = Thread.currentThread();
+        final Thread producer = producerThread.get();
+        if (producer == current || (producer == null && producerThread.compareAndSet(null, current))) {
+            return true;
+        }
+
+        throw new IllegalStateException("Only a single thread can publish to a single-producer MessageBus. '" + current.getName() +
+                                        "' is publishing, but '" + producerThread.get().getName() + "' is the producer.");
     }
 
     // gets the sequences used for processing work
@@ -157,47 +288,137 @@ class LmaxDisruptor implements Publisher {
     }
 
 
-    // ASM
+    // ASM and REFLECTION (only the handlers are invoked per listener, and that is always on the thread that fans out the message)
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                 final Object message) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                 final Object message1, final Object message2) {
+        throw perListener();
+    }
+
     @Override
     public
     void publish(final ErrorHandler errorHandler,
                  final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                 final Object message1, final Object message2, final Object message3) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message1, final Object message2) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message1, final Object message2, final Object message3) {
+        throw perListener();
+    }
+
+    /**
+     * Async messages are always queued once per publication (DISPATCH), and never once per listener.
+     */
+    private static
+    UnsupportedOperationException perListener() {
+        return new UnsupportedOperationException("Async publishers only accept resolved subscriptions, not single listeners.");
+    }
+
+
+    // DISPATCH
+    @SuppressWarnings("Duplicates")
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
                  final Object message) {
 
-        long seq = ringBuffer.next();
+        assert isValidProducer();
+        long seq = claim();
+        if (seq < 0) {
+            if (seq == OVERFLOW) {
+                currentWorker().overflow(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message);
+                    }
+                });
+            }
+            else if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message);
+            }
+            return;
+        }
 
         MessageHolder job = ringBuffer.get(seq);
 
-        job.type = MessageType.ASM_ONE;
+        job.type = MessageType.DISPATCH_ONE;
 
         job.errorHandler = errorHandler;
-        job.asmInvocation = invocation;
-        job.listener = listener;
-        job.handler = handler;
-        job.handleIndex = handleIndex;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
 
         job.message1 = message;
 
         ringBuffer.publish(seq);
     }
 
+    @SuppressWarnings("Duplicates")
     @Override
     public
-    void publish(final ErrorHandler errorHandler,
-                 final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
                  final Object message1, final Object message2) {
 
-        long seq = ringBuffer.next();
+        assert isValidProducer();
+        long seq = claim();
+        if (seq < 0) {
+            if (seq == OVERFLOW) {
+                currentWorker().overflow(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2);
+                    }
+                });
+            }
+            else if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2);
+            }
+            return;
+        }
 
         MessageHolder job = ringBuffer.get(seq);
 
-        job.type = MessageType.ASM_TWO;
+        job.type = MessageType.DISPATCH_TWO;
 
         job.errorHandler = errorHandler;
-        job.asmInvocation = invocation;
-        job.listener = listener;
-        job.handler = handler;
-        job.handleIndex = handleIndex;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
 
         job.message1 = message1;
         job.message2 = message2;
@@ -205,23 +426,39 @@ class LmaxDisruptor implements Publisher {
         ringBuffer.publish(seq);
     }
 
+    @SuppressWarnings("Duplicates")
     @Override
     public
-    void publish(final ErrorHandler errorHandler,
-                 final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
                  final Object message1, final Object message2, final Object message3) {
 
-        long seq = ringBuffer.next();
+        assert isValidProducer();
+        long seq = claim();
+        if (seq < 0) {
+            if (seq == OVERFLOW) {
+                currentWorker().overflow(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2, message3);
+                    }
+                });
+            }
+            else if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2, message3);
+            }
+            return;
+        }
 
         MessageHolder job = ringBuffer.get(seq);
 
-        job.type = MessageType.ASM_THREE;
+        job.type = MessageType.DISPATCH_THREE;
 
         job.errorHandler = errorHandler;
-        job.asmInvocation = invocation;
-        job.listener = listener;
-        job.handler = handler;
-        job.handleIndex = handleIndex;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
 
         job.message1 = message1;
         job.message2 = message2;
@@ -230,99 +467,164 @@ class LmaxDisruptor implements Publisher {
         ringBuffer.publish(seq);
     }
 
-
-    // REFLECTION
-    @SuppressWarnings("Duplicates")
+    // BATCH
     @Override
     public
-    void publish(final ErrorHandler errorHandler,
-                 final ReflectionInvocation invocation, final Object listener, final Method method,
-                 final Object message) {
+    void publishBatch(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                      final Subscription[][] subscriptions, final Object[] messages) {
 
-        long seq = ringBuffer.next();
+        final int length = messages.length;
+        final int bufferSize = ringBuffer.getBufferSize();
 
-        MessageHolder job = ringBuffer.get(seq);
+        if (overflowPolicy != OverflowPolicy.Block || currentWorker() != null) {
+            // the overflow policy is applied to each message. A worker cannot wait for space in the ring buffer either
+            for (int i = 0; i < length; i++) {
+                publish(errorHandler, subscriptionManager, subscriptions[i], null, messages[i]);
+            }
+            return;
+        }
 
-        job.type = MessageType.REFLECT_ONE;
+        // claim the sequences in bulk. We can never claim more than the size of the ring buffer at once
+        int index = 0;
+        while (index < length) {
+            final int count = Math.min(bufferSize, length - index);
 
-        job.errorHandler = errorHandler;
-        job.reflectionInvocation = invocation;
-        job.listener = listener;
-        job.method = method;
+            assert isValidProducer();
+            final long hi = ringBuffer.next(count);
+            final long lo = hi - (count - 1);
 
-        job.message1 = message;
+            for (long seq = lo; seq <= hi; seq++, index++) {
+                MessageHolder job = ringBuffer.get(seq);
 
-        ringBuffer.publish(seq);
+                job.type = MessageType.DISPATCH_ONE;
+
+                job.errorHandler = errorHandler;
+                job.subscriptionManager = subscriptionManager;
+                job.subscriptions = subscriptions[index];
+                job.superSubscriptions = null;
+
+                job.message1 = messages[index];
+            }
+
+            ringBuffer.publish(lo, hi);
+        }
     }
 
-    @SuppressWarnings("Duplicates")
+    // TRACKED
     @Override
     public
-    void publish(final ErrorHandler errorHandler,
-                 final ReflectionInvocation invocation, final Object listener, final Method method,
-                 final Object message1, final Object message2) {
-
-        long seq = ringBuffer.next();
+    void publishTracked(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                        final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                        final Object message, final CompletableFuture<Void> completion) {
+
+        assert isValidProducer();
+        long seq = claim();
+        if (seq < 0) {
+            if (seq == OVERFLOW) {
+                currentWorker().overflow(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        syncPublisher.publishTracked(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message,
+                                                     completion);
+                    }
+                });
+            }
+            else if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                syncPublisher.publishTracked(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message, completion);
+            } else {
+                completion.cancel(false);
+            }
+            return;
+        }
 
         MessageHolder job = ringBuffer.get(seq);
 
-        job.type = MessageType.REFLECT_TWO;
+        job.type = MessageType.DISPATCH_TRACKED;
 
         job.errorHandler = errorHandler;
-        job.reflectionInvocation = invocation;
-        job.listener = listener;
-        job.method = method;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
 
-        job.message1 = message1;
-        job.message2 = message2;
+        job.message1 = message;
+        job.completion = completion;
 
         ringBuffer.publish(seq);
     }
 
-    @SuppressWarnings("Duplicates")
+
+    // TRY
     @Override
     public
-    void publish(final ErrorHandler errorHandler,
-                 final ReflectionInvocation invocation, final Object listener, final Method method,
-                 final Object message1, final Object message2, final Object message3) {
-
-        long seq = ringBuffer.next();
+    boolean tryPublish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                       final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                       final Object message, final long timeoutNanos) {
+
+        assert isValidProducer();
+        long seq = tryClaim(timeoutNanos);
+        if (seq < 0) {
+            return false;
+        }
 
         MessageHolder job = ringBuffer.get(seq);
 
-        job.type = MessageType.REFLECT_THREE;
+        job.type = MessageType.DISPATCH_ONE;
 
         job.errorHandler = errorHandler;
-        job.reflectionInvocation = invocation;
-        job.listener = listener;
-        job.method = method;
+        job.subscriptionManager = subscriptionManager;
+        job.subscriptions = subscriptions;
+        job.superSubscriptions = superSubscriptions;
 
-        job.message1 = message1;
-        job.message2 = message2;
-        job.message3 = message3;
+        job.message1 = message;
 
         ringBuffer.publish(seq);
+        return true;
     }
 
     @Override
     public
-    boolean hasPendingMessages() {
+    boolean awaitQuiescence(final long timeoutNanos) {
+        // every message published before now has this (or a lower) sequence
+        final long cursor = ringBuffer.getCursor();
+
+        // a worker's sequence is always one less than the message it is processing (or waiting for)
+        final long deadline = System.nanoTime() + timeoutNanos;
+        long parkNanos = Backoff.MIN_PARK_NANOS;
+        while (Util.getMinimumSequence(sequences) < cursor) {
+            parkNanos = Backoff.park(parkNanos, deadline);
+            if (parkNanos < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public
+    long pendingCount() {
         // modified from workerPool.drainAndHalt()
-        return ringBuffer.getCursor() > Util.getMinimumSequence(getSequences());
+        return Math.max(0L, ringBuffer.getCursor() - Util.getMinimumSequence(sequences));
     }
 
     @Override
     public
-    void shutdown() {
-        // let some messages finish publishing
+    long remainingCapacity() {
+        return ringBuffer.remainingCapacity();
+    }
 
-        final long timeOutAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
-        while (hasPendingMessages()) {
-            if (System.currentTimeMillis() > timeOutAt) {
-                break;
-            }
-            LockSupport.parkNanos(100L); // wait 100ms for publication to finish
-        }
+    @Override
+    public
+    boolean hasPendingMessages() {
+        return pendingCount() > 0L;
+    }
+
+    @Override
+    public
+    void shutdown() {
+        // let the messages that have already been published finish
+        awaitQuiescence(shutdownTimeoutNanos);
 
 
         for (WorkProcessor<?> processor : workProcessors) {
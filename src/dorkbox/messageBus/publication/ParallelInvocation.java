@@ -0,0 +1,332 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.publication;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.esotericsoftware.reflectasm.MethodAccess;
+
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
+import dorkbox.messageBus.subscription.asm.AsmInvocation;
+import dorkbox.messageBus.subscription.reflection.ReflectionInvocation;
+
+/**
+ * Invokes the message handlers on the threads of a {@link ForkJoinPool}, and waits until all of them have finished.
+ * <p>
+ * The subscriptions are resolved on the calling thread, and every handler of every listener becomes a separate task. The tasks are
+ * split between the threads of the pool, so this is meant for CPU heavy handlers where the synchronous semantics of
+ * {@link DirectInvocation} are needed, but running all of the handlers on a single thread is too slow.
+ * <p>
+ * Dead messages are handled on the calling thread. The threads of the pool are only started when a message is first published.
+ *
+ * @author dorkbox, llc
+ */
+@SuppressWarnings("Duplicates")
+public
+class ParallelInvocation extends DirectInvocation {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param config the parallelism of the pool to use. The thread factory is not used.
+     */
+    public
+    ParallelInvocation(final MessageBusConfig config) {
+        this.pool = new ForkJoinPool(config.getParallelism());
+    }
+
+    public
+    ParallelInvocation(final ParallelInvocation publisher) {
+        this.pool = publisher.pool;
+    }
+
+
+    // DISPATCH
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message) {
+
+        final Invocations invocations = new Invocations();
+
+        Subscription sub;
+        int subLength;
+        boolean hasSubs = false;
+
+        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = subscriptions[i];
+                hasSubs |= sub.publish(invocations, errorHandler, message);
+            }
+        }
+
+        if (superSubscriptions != null && (subLength = superSubscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = superSubscriptions[i];
+                hasSubs |= sub.publish(invocations, errorHandler, message);
+            }
+        }
+
+        if (!hasSubs) {
+            // there are no subscriptions, so this only publishes the dead message
+            super.publish(errorHandler, subscriptionManager, null, null, message);
+            return;
+        }
+
+        invocations.invokeAll(pool);
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2) {
+
+        final Invocations invocations = new Invocations();
+
+        Subscription sub;
+        int subLength;
+        boolean hasSubs = false;
+
+        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = subscriptions[i];
+                hasSubs |= sub.publish(invocations, errorHandler, message1, message2);
+            }
+        }
+
+        if (superSubscriptions != null && (subLength = superSubscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = superSubscriptions[i];
+                hasSubs |= sub.publish(invocations, errorHandler, message1, message2);
+            }
+        }
+
+        if (!hasSubs) {
+            // there are no subscriptions, so this only publishes the dead message
+            super.publish(errorHandler, subscriptionManager, null, null, message1, message2);
+            return;
+        }
+
+        invocations.invokeAll(pool);
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2, final Object message3) {
+
+        final Invocations invocations = new Invocations();
+
+        Subscription sub;
+        int subLength;
+        boolean hasSubs = false;
+
+        if (subscriptions != null && (subLength = subscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = subscriptions[i];
+                hasSubs |= sub.publish(invocations, errorHandler, message1, message2, message3);
+            }
+        }
+
+        if (superSubscriptions != null && (subLength = superSubscriptions.length) > 0) {
+            for (int i = 0; i < subLength; i++) {
+                sub = superSubscriptions[i];
+                hasSubs |= sub.publish(invocations, errorHandler, message1, message2, message3);
+            }
+        }
+
+        if (!hasSubs) {
+            // there are no subscriptions, so this only publishes the dead message
+            super.publish(errorHandler, subscriptionManager, null, null, message1, message2, message3);
+            return;
+        }
+
+        invocations.invokeAll(pool);
+    }
+
+
+    @Override
+    public
+    void shutdown() {
+        // every publication waits for its handlers, so there is nothing left to run
+        pool.shutdownNow();
+    }
+
+
+    /**
+     * Collects the invocation of every handler (for a single publication), instead of invoking them.
+     */
+    private static
+    class Invocations extends DirectInvocation {
+        private final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+
+        /**
+         * Invokes all of the collected handlers, and waits until they are finished.
+         */
+        void invokeAll(final ForkJoinPool pool) {
+            final int size = tasks.size();
+            if (size == 1) {
+                // there is nothing to split
+                tasks.get(0).run();
+            }
+            else if (size > 1) {
+                final Runnable[] array = tasks.toArray(new Runnable[size]);
+
+                // a few tasks per thread, so that a slow handler does not leave the other threads idle
+                final int threshold = Math.max(1, size / (pool.getParallelism() * 4));
+                pool.invoke(new Split(array, 0, size, threshold));
+            }
+        }
+
+        // ASM
+        @Override
+        public
+        void publish(final ErrorHandler errorHandler,
+                     final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                     final Object message) {
+
+            tasks.add(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Invocations.super.publish(errorHandler, invocation, listener, handler, handleIndex, message);
+                }
+            });
+        }
+
+        @Override
+        public
+        void publish(final ErrorHandler errorHandler,
+                     final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                     final Object message1, final Object message2) {
+
+            tasks.add(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Invocations.super.publish(errorHandler, invocation, listener, handler, handleIndex, message1, message2);
+                }
+            });
+        }
+
+        @Override
+        public
+        void publish(final ErrorHandler errorHandler,
+                     final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                     final Object message1, final Object message2, final Object message3) {
+
+            tasks.add(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Invocations.super.publish(errorHandler, invocation, listener, handler, handleIndex, message1, message2, message3);
+                }
+            });
+        }
+
+
+        // REFLECTION
+        @Override
+        public
+        void publish(final ErrorHandler errorHandler,
+                     final ReflectionInvocation invocation, final Object listener, final Method method,
+                     final Object message) {
+
+            tasks.add(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Invocations.super.publish(errorHandler, invocation, listener, method, message);
+                }
+            });
+        }
+
+        @Override
+        public
+        void publish(final ErrorHandler errorHandler,
+                     final ReflectionInvocation invocation, final Object listener, final Method method,
+                     final Object message1, final Object message2) {
+
+            tasks.add(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Invocations.super.publish(errorHandler, invocation, listener, method, message1, message2);
+                }
+            });
+        }
+
+        @Override
+        public
+        void publish(final ErrorHandler errorHandler,
+                     final ReflectionInvocation invocation, final Object listener, final Method method,
+                     final Object message1, final Object message2, final Object message3) {
+
+            tasks.add(new Runnable() {
+                @Override
+                public
+                void run() {
+                    Invocations.super.publish(errorHandler, invocation, listener, method, message1, message2, message3);
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Splits the handlers in half, until there are few enough to run on the current thread.
+     */
+    private static
+    class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Runnable[] tasks;
+        private final int start;
+        private final int end;
+        private final int threshold;
+
+        Split(final Runnable[] tasks, final int start, final int end, final int threshold) {
+            this.tasks = tasks;
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected
+        void compute() {
+            if (end - start <= threshold) {
+                for (int i = start; i < end; i++) {
+                    tasks[i].run();
+                }
+            }
+            else {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new Split(tasks, start, middle, threshold),
+                          new Split(tasks, middle, end, threshold));
+            }
+        }
+    }
+}
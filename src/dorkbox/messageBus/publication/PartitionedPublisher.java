@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.publication;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import dorkbox.messageBus.AsyncPublicationMode;
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.OverflowPolicy;
+import dorkbox.messageBus.error.ErrorHandler;
+
+/**
+ * Routes async publications to one of N partitions, based on the hash of a key. Every partition has its own queue, which is consumed
+ * by exactly one thread, so messages published with the same key are always handled in the order they were published.
+ * <p>
+ * The partitions (and their threads) are only created when they are first used. Virtual threads cannot guarantee any order, so when
+ * that publication mode is used, the partitions use the Conversant Disruptor instead.
+ *
+ * @author dorkbox, llc
+ */
+public
+class PartitionedPublisher {
+
+    private final MessageBusConfig config;
+    private final ErrorHandler errorHandler;
+
+    // shared with copies, so that the partitions are only created once
+    private final AtomicReference<Publisher[]> partitionsREF;
+
+    /**
+     * @param config the configuration for the bus. Each partition uses the same options, but with a single thread
+     * @param errorHandler where errors during processing are sent
+     */
+    public
+    PartitionedPublisher(final MessageBusConfig config, final ErrorHandler errorHandler) {
+        this.config = config;
+        this.errorHandler = errorHandler;
+        this.partitionsREF = new AtomicReference<Publisher[]>();
+    }
+
+    public
+    PartitionedPublisher(final PartitionedPublisher publisher) {
+        this.config = publisher.config;
+        this.errorHandler = publisher.errorHandler;
+        this.partitionsREF = publisher.partitionsREF;
+    }
+
+    /**
+     * @return the publisher for the partition that the specified key belongs to. The key must not be null.
+     */
+    public
+    Publisher getPartition(final Object key) {
+        Publisher[] partitions = partitionsREF.get();
+        if (partitions == null) {
+            partitions = createPartitions();
+        }
+
+        // spread the high bits, since the partitions are selected with the low bits
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+
+        return partitions[(hash & 0x7FFFFFFF) % partitions.length];
+    }
+
+    private synchronized
+    Publisher[] createPartitions() {
+        Publisher[] partitions = partitionsREF.get();
+        if (partitions != null) {
+            return partitions;
+        }
+
+        final int numberOfPartitions = config.getOrderedPartitions();
+
+        // running the message on the calling thread would break the order
+        OverflowPolicy overflowPolicy = config.getOverflowPolicy();
+        if (overflowPolicy == OverflowPolicy.CallerRuns) {
+            overflowPolicy = OverflowPolicy.Block;
+        }
+
+        // the capacity is split between all of the partitions
+        final MessageBusConfig partitionConfig = config.toBuilder()
+                                                       .numberOfThreads(1)
+                                                       .queueCapacity(Math.max(2, config.getQueueCapacity() / numberOfPartitions))
+                                                       .overflowPolicy(overflowPolicy)
+                                                       .buildConfig();
+
+        partitions = new Publisher[numberOfPartitions];
+        for (int i = 0; i < numberOfPartitions; i++) {
+            if (partitionConfig.getPublicationMode() == AsyncPublicationMode.LmaxDisruptor) {
+                partitions[i] = new LmaxDisruptor(partitionConfig, errorHandler);
+            } else {
+                // virtual threads cannot guarantee the order, so they also use the Conversant Disruptor
+                partitions[i] = new ConversantDisruptor(partitionConfig);
+            }
+        }
+
+        partitionsREF.set(partitions);
+        return partitions;
+    }
+
+    /**
+     * Waits until every message that was published (to any partition) before this call has been handled.
+     *
+     * @return false if the timeout elapsed first, or if the thread was interrupted
+     */
+    public
+    boolean awaitQuiescence(final long timeoutNanos) {
+        final Publisher[] partitions = partitionsREF.get();
+        if (partitions != null) {
+            final long deadline = System.nanoTime() + timeoutNanos;
+            for (Publisher partition : partitions) {
+                if (!partition.awaitQuiescence(Math.max(0L, deadline - System.nanoTime()))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return how many messages (for all the partitions) are waiting to be handled, or are currently being handled
+     */
+    public
+    long pendingCount() {
+        long count = 0L;
+
+        final Publisher[] partitions = partitionsREF.get();
+        if (partitions != null) {
+            for (Publisher partition : partitions) {
+                count += partition.pendingCount();
+            }
+        }
+
+        return count;
+    }
+
+    public
+    boolean hasPendingMessages() {
+        final Publisher[] partitions = partitionsREF.get();
+        if (partitions != null) {
+            for (Publisher partition : partitions) {
+                if (partition.hasPendingMessages()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    public synchronized
+    void shutdown() {
+        final Publisher[] partitions = partitionsREF.get();
+        if (partitions != null) {
+            for (Publisher partition : partitions) {
+                partition.shutdown();
+            }
+        }
+    }
+}
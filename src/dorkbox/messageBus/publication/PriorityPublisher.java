@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.publication;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import dorkbox.messageBus.AsyncPublicationMode;
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.error.ErrorHandler;
+
+/**
+ * High priority async publications use their own queue and threads, so that they are never waiting behind the (possibly very many)
+ * normal async publications. This lets control messages (shutdown, configuration changes, etc) overtake bulk data under load.
+ * <p>
+ * The queue (and its threads) are only created when they are first used.
+ *
+ * @author dorkbox, llc
+ */
+public
+class PriorityPublisher {
+
+    private final MessageBusConfig config;
+    private final ErrorHandler errorHandler;
+
+    // shared with copies, so that the publisher is only created once
+    private final AtomicReference<Publisher> publisherREF;
+
+    /**
+     * @param config the configuration for the bus. The priority queue uses the same options, but with
+     *               {@link MessageBusConfig#getPriorityThreads()} threads
+     * @param errorHandler where errors during processing are sent
+     */
+    public
+    PriorityPublisher(final MessageBusConfig config, final ErrorHandler errorHandler) {
+        this.config = config;
+        this.errorHandler = errorHandler;
+        this.publisherREF = new AtomicReference<Publisher>();
+    }
+
+    public
+    PriorityPublisher(final PriorityPublisher publisher) {
+        this.config = publisher.config;
+        this.errorHandler = publisher.errorHandler;
+        this.publisherREF = publisher.publisherREF;
+    }
+
+    public
+    Publisher getPublisher() {
+        Publisher publisher = publisherREF.get();
+        if (publisher == null) {
+            publisher = createPublisher();
+        }
+
+        return publisher;
+    }
+
+    private synchronized
+    Publisher createPublisher() {
+        Publisher publisher = publisherREF.get();
+        if (publisher != null) {
+            return publisher;
+        }
+
+        final int numberOfThreads = config.getPriorityThreads();
+        final MessageBusConfig priorityConfig = config.toBuilder()
+                                                      .numberOfThreads(numberOfThreads)
+                                                      .queueCapacity(0) // the default for the number of threads
+                                                      .buildConfig();
+
+        if (priorityConfig.getPublicationMode() == AsyncPublicationMode.LmaxDisruptor) {
+            publisher = new LmaxDisruptor(priorityConfig, errorHandler);
+        } else if (priorityConfig.getPublicationMode() == AsyncPublicationMode.VirtualThreads) {
+            publisher = new VirtualThreadPublisher(priorityConfig);
+        } else {
+            publisher = new ConversantDisruptor(priorityConfig);
+        }
+
+        publisherREF.set(publisher);
+        return publisher;
+    }
+
+    /**
+     * Waits until every high priority message that was published before this call has been handled.
+     *
+     * @return false if the timeout elapsed first, or if the thread was interrupted
+     */
+    public
+    boolean awaitQuiescence(final long timeoutNanos) {
+        final Publisher publisher = publisherREF.get();
+        return publisher == null || publisher.awaitQuiescence(timeoutNanos);
+    }
+
+    /**
+     * @return how many high priority messages are waiting to be handled, or are currently being handled
+     */
+    public
+    long pendingCount() {
+        final Publisher publisher = publisherREF.get();
+        if (publisher == null) {
+            return 0L;
+        }
+
+        return publisher.pendingCount();
+    }
+
+    public
+    boolean hasPendingMessages() {
+        final Publisher publisher = publisherREF.get();
+        return publisher != null && publisher.hasPendingMessages();
+    }
+
+    public synchronized
+    void shutdown() {
+        final Publisher publisher = publisherREF.get();
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+}
@@ -16,16 +16,19 @@
 package dorkbox.messageBus.publication;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
 
 import com.esotericsoftware.reflectasm.MethodAccess;
 
 import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
 import dorkbox.messageBus.subscription.asm.AsmInvocation;
 import dorkbox.messageBus.subscription.reflection.ReflectionInvocation;
 
 public
 interface Publisher {
-    // ASM
+    // ASM (a single listener, on the calling thread. The async publishers only accept resolved subscriptions, and throw for these)
     void publish(final ErrorHandler errorHandler,
                  final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
                  final Object message);
@@ -53,6 +56,57 @@ interface Publisher {
                  final Object message1, final Object message2, final Object message3);
 
 
+    // DISPATCH (the subscriptions have already been resolved by the calling thread, and can be null)
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message);
+
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2);
+
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2, final Object message3);
+
+
+    // BATCH (the subscriptions for each message have already been resolved by the calling thread, including the super type
+    // subscriptions, and can be null)
+    void publishBatch(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                      final Subscription[][] subscriptions, final Object[] messages);
+
+
+    // TRY (never waits longer than the timeout, which can be 0). Returns false if there was no space in the queue for the message
+    boolean tryPublish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                       final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                       final Object message, final long timeoutNanos);
+
+
+    // TRACKED (the completion is completed once all the listeners have been notified, or cancelled if the message is dropped)
+    void publishTracked(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                        final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                        final Object message, final CompletableFuture<Void> completion);
+
+
+    /**
+     * Waits until every message that was published (to this publisher) before this call has been handled.
+     *
+     * @return false if the timeout elapsed first, or if the thread was interrupted
+     */
+    boolean awaitQuiescence(final long timeoutNanos);
+
+    /**
+     * @return how many messages are waiting to be handled, or are currently being handled. This does not allocate, so it is safe to call
+     *         at a high frequency
+     */
+    long pendingCount();
+
+    /**
+     * @return how many more messages can be published before the queue is full. This does not allocate, so it is safe to call at a high
+     *         frequency
+     */
+    long remainingCapacity();
+
     boolean hasPendingMessages();
     void shutdown();
 }
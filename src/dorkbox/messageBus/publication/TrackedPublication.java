@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.publication;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Completes the future of a tracked publication once every handler has run, including the handlers that were handed off to another
+ * thread (a lane, or the mailbox of a {@link dorkbox.messageBus.annotations.Delivery#Mailbox} listener).
+ * <p>
+ * The publication is "current" on the thread that fans out the message, so that every hand off can be counted without changing how
+ * the handlers are invoked.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class TrackedPublication {
+    private static final ThreadLocal<TrackedPublication> current = new ThreadLocal<TrackedPublication>();
+
+    private final CompletableFuture<Void> completion;
+
+    // the thread that fans out the message holds one of these, until it is done invoking (and handing off) the handlers
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private
+    TrackedPublication(final CompletableFuture<Void> completion) {
+        this.completion = completion;
+    }
+
+    /**
+     * @return the tracked publication that the current thread is fanning out, or null if it is not tracked
+     */
+    public static
+    TrackedPublication current() {
+        return current.get();
+    }
+
+    /**
+     * Makes a new tracked publication current on this thread. This must always be followed by {@link #end(TrackedPublication)}.
+     *
+     * @return the tracked publication that was current before (publications can be nested), which is restored by end()
+     */
+    static
+    TrackedPublication begin(final CompletableFuture<Void> completion) {
+        final TrackedPublication previous = current.get();
+        current.set(new TrackedPublication(completion));
+        return previous;
+    }
+
+    /**
+     * The thread is done fanning out the current publication, which is completed once the handlers that were handed off have run.
+     *
+     * @param previous the tracked publication that was current before
+     */
+    static
+    void end(final TrackedPublication previous) {
+        final TrackedPublication tracked = current.get();
+        current.set(previous);
+        tracked.done();
+    }
+
+    private
+    void done() {
+        if (pending.decrementAndGet() == 0) {
+            completion.complete(null);
+        }
+    }
+
+    /**
+     * Counts a message that is handed off to a mailbox.
+     *
+     * @param message this is responsible for reporting its own errors
+     *
+     * @return the message to hand off instead, which finishes this part of the publication once it has run
+     */
+    public
+    Runnable handOff(final Runnable message) {
+        pending.getAndIncrement();
+
+        return new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    message.run();
+                } finally {
+                    done();
+                }
+            }
+        };
+    }
+
+    /**
+     * Counts a publication that is handed off to a lane. If the lane drops the message (because of the overflow policy), this
+     * publication is cancelled as well.
+     *
+     * @return the future to track the publication on the lane with
+     */
+    CompletableFuture<Void> handOff() {
+        pending.getAndIncrement();
+
+        final CompletableFuture<Void> lane = new CompletableFuture<Void>();
+        lane.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public
+            void accept(final Void result, final Throwable cause) {
+                if (cause == null) {
+                    done();
+                }
+                else if (cause instanceof CancellationException) {
+                    completion.cancel(false);
+                }
+                else {
+                    completion.completeExceptionally(cause);
+                }
+            }
+        });
+
+        return lane;
+    }
+
+    /**
+     * Fails this publication. The handlers that were already handed off still run.
+     */
+    public
+    void fail(final Throwable cause) {
+        completion.completeExceptionally(cause);
+    }
+}
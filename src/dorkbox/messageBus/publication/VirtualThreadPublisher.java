@@ -0,0 +1,385 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.publication;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.esotericsoftware.reflectasm.MethodAccess;
+
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.OverflowPolicy;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
+import dorkbox.messageBus.subscription.asm.AsmInvocation;
+import dorkbox.messageBus.subscription.reflection.ReflectionInvocation;
+
+/**
+ * Every async message is handled on its own virtual thread (Java 21+), so handlers that block (for example, on I/O) do not limit how many
+ * messages can be handled at the same time.
+ * <p>
+ * The number of messages that are in-flight is limited to the queue capacity, and the {@link OverflowPolicy} decides what happens when
+ * that limit is reached. Unlike the disruptors, a new task (and virtual thread) is created for every publication.
+ * <p>
+ * This project is compiled for Java 8, so the virtual thread executor is created via reflection.
+ *
+ * @author dorkbox, llc
+ */
+public
+class VirtualThreadPublisher implements Publisher {
+
+    private static final Method newVirtualThreadPerTaskExecutor;
+
+    static {
+        Method method = null;
+        try {
+            method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (Exception ignored) {
+            // not running on Java 21+
+        }
+        newVirtualThreadPerTaskExecutor = method;
+    }
+
+    /**
+     * @return true if virtual threads are supported by this JVM (Java 21+)
+     */
+    public static
+    boolean isSupported() {
+        return newVirtualThreadPerTaskExecutor != null;
+    }
+
+    private final Publisher syncPublisher;
+    private final ExecutorService executor;
+
+    private final int queueCapacity;
+    private final Semaphore inFlight;
+    private final OverflowPolicy overflowPolicy;
+    private final long shutdownTimeoutNanos;
+
+    // how many tasks have been started, and how many of those have completed
+    private final LongAdder started;
+    private final LongAdder completed;
+
+    /**
+     * @param config the queue capacity (the maximum number of in-flight messages) to use. The number of threads and thread factory are
+     *               not used.
+     *
+     * @throws IllegalStateException if virtual threads are not supported by this JVM
+     */
+    public
+    VirtualThreadPublisher(final MessageBusConfig config) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21+, this is Java " + System.getProperty("java.version"));
+        }
+
+        try {
+            executor = (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to create the virtual thread executor", e);
+        }
+
+        this.syncPublisher = new DirectInvocation(!config.getLanes().isEmpty());
+        this.queueCapacity = config.getQueueCapacity();
+        this.inFlight = new Semaphore(queueCapacity);
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.shutdownTimeoutNanos = config.getShutdownTimeoutNanos();
+        this.started = new LongAdder();
+        this.completed = new LongAdder();
+    }
+
+    public
+    VirtualThreadPublisher(final VirtualThreadPublisher publisher) {
+        this.syncPublisher = publisher.syncPublisher;
+        this.executor = publisher.executor;
+        this.queueCapacity = publisher.queueCapacity;
+        this.inFlight = publisher.inFlight;
+        this.overflowPolicy = publisher.overflowPolicy;
+        this.shutdownTimeoutNanos = publisher.shutdownTimeoutNanos;
+        this.started = publisher.started;
+        this.completed = publisher.completed;
+    }
+
+    /**
+     * Waits (if permitted by the overflow policy) until there is room for another message, then runs the task on a new virtual thread.
+     *
+     * @return false if the task was dropped because of the overflow policy
+     */
+    private
+    boolean execute(final Runnable task) {
+        if (overflowPolicy == OverflowPolicy.Block) {
+            inFlight.acquireUninterruptibly();
+        }
+        else if (!inFlight.tryAcquire()) {
+            if (overflowPolicy == OverflowPolicy.CallerRuns) {
+                task.run();
+                return true;
+            }
+            return false;
+        }
+
+        start(task);
+        return true;
+    }
+
+    /**
+     * Runs the task on a new virtual thread. The caller must have already acquired a permit.
+     */
+    private
+    void start(final Runnable task) {
+        started.increment();
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public
+                void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        completed.increment();
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // the executor has been shutdown
+            completed.increment();
+            inFlight.release();
+            throw e;
+        }
+    }
+
+
+    // ASM and REFLECTION (only the handlers are invoked per listener, and that is always on the thread that fans out the message)
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                 final Object message) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                 final Object message1, final Object message2) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final AsmInvocation invocation, final Object listener, final MethodAccess handler, final int handleIndex,
+                 final Object message1, final Object message2, final Object message3) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message1, final Object message2) {
+        throw perListener();
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler,
+                 final ReflectionInvocation invocation, final Object listener, final Method method,
+                 final Object message1, final Object message2, final Object message3) {
+        throw perListener();
+    }
+
+    /**
+     * Async messages are always queued once per publication (DISPATCH), and never once per listener.
+     */
+    private static
+    UnsupportedOperationException perListener() {
+        return new UnsupportedOperationException("Async publishers only accept resolved subscriptions, not single listeners.");
+    }
+
+
+    // DISPATCH
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message) {
+
+        execute(new Runnable() {
+            @Override
+            public
+            void run() {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message);
+            }
+        });
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2) {
+
+        execute(new Runnable() {
+            @Override
+            public
+            void run() {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2);
+            }
+        });
+    }
+
+    @Override
+    public
+    void publish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                 final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                 final Object message1, final Object message2, final Object message3) {
+
+        execute(new Runnable() {
+            @Override
+            public
+            void run() {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message1, message2, message3);
+            }
+        });
+    }
+
+
+    // BATCH
+    @Override
+    public
+    void publishBatch(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                      final Subscription[][] subscriptions, final Object[] messages) {
+
+        for (int i = 0; i < messages.length; i++) {
+            publish(errorHandler, subscriptionManager, subscriptions[i], null, messages[i]);
+        }
+    }
+
+
+    // TRACKED
+    @Override
+    public
+    void publishTracked(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                        final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                        final Object message, final CompletableFuture<Void> completion) {
+
+        boolean executed = execute(new Runnable() {
+            @Override
+            public
+            void run() {
+                syncPublisher.publishTracked(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message, completion);
+            }
+        });
+
+        if (!executed) {
+            completion.cancel(false);
+        }
+    }
+
+
+    // TRY
+    @Override
+    public
+    boolean tryPublish(final ErrorHandler errorHandler, final SubscriptionManager subscriptionManager,
+                       final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                       final Object message, final long timeoutNanos) {
+
+        boolean acquired;
+        try {
+            acquired = inFlight.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            return false;
+        }
+
+        start(new Runnable() {
+            @Override
+            public
+            void run() {
+                syncPublisher.publish(errorHandler, subscriptionManager, subscriptions, superSubscriptions, message);
+            }
+        });
+        return true;
+    }
+
+
+    @Override
+    public
+    boolean awaitQuiescence(final long timeoutNanos) {
+        // every task started before now is included in this count
+        final long target = started.sum();
+
+        final long deadline = System.nanoTime() + timeoutNanos;
+        long parkNanos = Backoff.MIN_PARK_NANOS;
+        while (completed.sum() < target) {
+            parkNanos = Backoff.park(parkNanos, deadline);
+            if (parkNanos < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public
+    long pendingCount() {
+        return queueCapacity - inFlight.availablePermits();
+    }
+
+    @Override
+    public
+    long remainingCapacity() {
+        return inFlight.availablePermits();
+    }
+
+    @Override
+    public
+    boolean hasPendingMessages() {
+        return pendingCount() > 0L;
+    }
+
+    @Override
+    public
+    void shutdown() {
+        // let the messages that have already been started finish
+        awaitQuiescence(shutdownTimeoutNanos);
+
+        // This uses Thread.interrupt()
+        executor.shutdownNow();
+    }
+}
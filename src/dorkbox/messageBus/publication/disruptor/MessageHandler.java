@@ -15,6 +15,8 @@
  */
 package dorkbox.messageBus.publication.disruptor;
 
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.lmax.disruptor.LifecycleAware;
@@ -28,58 +30,96 @@ import dorkbox.messageBus.publication.Publisher;
 public
 class MessageHandler implements WorkHandler<MessageHolder>, LifecycleAware {
 
+    // the handler for the worker that is running on the current thread
+    private static final ThreadLocal<MessageHandler> current = new ThreadLocal<MessageHandler>();
+
+    /**
+     * @return the handler for the worker that is running on the current thread, or null if this is not a worker thread
+     */
+    public static
+    MessageHandler current() {
+        return current.get();
+    }
+
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
     private final Publisher syncPublisher;
 
+    // messages published by this worker while the ring buffer was full. Only ever accessed by the worker thread
+    private final ArrayDeque<Runnable> overflow = new ArrayDeque<Runnable>();
+
     public
     MessageHandler(final Publisher syncPublisher) {
         this.syncPublisher = syncPublisher;
     }
 
+    /**
+     * Queues a message that was published by this worker, but that did not fit into the ring buffer. The worker cannot wait for space
+     * in the ring buffer (it might be the only thread that can make space), so the message is handled by this worker after the current
+     * event instead.
+     * <p>
+     * This must only be called by the worker thread.
+     */
+    public
+    void overflow(final Runnable message) {
+        overflow.add(message);
+    }
+
     @Override
     public
     void onEvent(final MessageHolder event) throws Exception {
+        handle(event);
+
+        // these can publish more messages, which might also overflow
+        Runnable message;
+        while ((message = overflow.poll()) != null) {
+            message.run();
+        }
+    }
+
+    private
+    void handle(final MessageHolder event) {
         switch (event.type) {
-            // ASM INVOCATION
-            case MessageType.ASM_ONE:
-                // this is by far the most common case.
-                syncPublisher.publish(event.errorHandler, event.asmInvocation, event.listener, event.handler, event.handleIndex, event.message1);
+            // DISPATCH (fan-out to all of the subscriptions)
+            case MessageType.DISPATCH_ONE:
+                syncPublisher.publish(event.errorHandler, event.subscriptionManager, event.subscriptions, event.superSubscriptions, event.message1);
                 event.clear();
                 return;
-            case MessageType.ASM_TWO:
-                syncPublisher.publish(event.errorHandler, event.asmInvocation, event.listener, event.handler, event.handleIndex, event.message1, event.message2);
+            case MessageType.DISPATCH_TWO:
+                syncPublisher.publish(event.errorHandler, event.subscriptionManager, event.subscriptions, event.superSubscriptions, event.message1, event.message2);
                 event.clear();
                 return;
-            case MessageType.ASM_THREE:
-                syncPublisher.publish(event.errorHandler, event.asmInvocation, event.listener, event.handler, event.handleIndex, event.message1, event.message2, event.message3);
+            case MessageType.DISPATCH_THREE:
+                syncPublisher.publish(event.errorHandler, event.subscriptionManager, event.subscriptions, event.superSubscriptions, event.message1, event.message2, event.message3);
                 event.clear();
                 return;
 
-            // REFLECT INVOCATION
-            case MessageType.REFLECT_ONE:
-                syncPublisher.publish(event.errorHandler, event.reflectionInvocation, event.listener, event.method, event.message1);
-                event.clear();
-                return;
-            case MessageType.REFLECT_TWO:
-                syncPublisher.publish(event.errorHandler, event.reflectionInvocation, event.listener, event.method, event.message1, event.message2);
-                event.clear();
-                return;
-            case MessageType.REFLECT_THREE:
-                syncPublisher.publish(event.errorHandler, event.reflectionInvocation, event.listener, event.method, event.message1, event.message2, event.message3);
-                event.clear();
+            case MessageType.DISPATCH_TRACKED: {
+                final CompletableFuture<Void> completion = event.completion;
+                try {
+                    // the future is completed once every handler has run, including the ones that are handed off to lanes and mailboxes
+                    syncPublisher.publishTracked(event.errorHandler, event.subscriptionManager, event.subscriptions, event.superSubscriptions,
+                                                 event.message1, completion);
+                } catch (Throwable e) {
+                    completion.completeExceptionally(e);
+                } finally {
+                    event.clear();
+                }
                 //noinspection UnnecessaryReturnStatement
                 return;
+            }
         }
     }
 
     @Override
     public
     void onStart() {
+        current.set(this);
     }
 
     @Override
     public synchronized
     void onShutdown() {
+        current.remove();
         shutdown.set(true);
     }
 
@@ -15,20 +15,18 @@
  */
 package dorkbox.messageBus.publication.disruptor;
 
-import java.lang.reflect.Method;
-
-import com.esotericsoftware.reflectasm.MethodAccess;
+import java.util.concurrent.CompletableFuture;
 
 import dorkbox.messageBus.error.ErrorHandler;
-import dorkbox.messageBus.subscription.asm.AsmInvocation;
-import dorkbox.messageBus.subscription.reflection.ReflectionInvocation;
+import dorkbox.messageBus.subscription.Subscription;
+import dorkbox.messageBus.subscription.SubscriptionManager;
 
 /**
  * @author dorkbox, llc Date: 2/2/15
  */
 public
 class MessageHolder {
-    public int type = MessageType.ASM_ONE;
+    public int type = MessageType.DISPATCH_ONE;
 
     public Object message1 = null;
     public Object message2 = null;
@@ -36,12 +34,11 @@ class MessageHolder {
 
     public ErrorHandler errorHandler = null;
 
-    public AsmInvocation asmInvocation = null;
-    public ReflectionInvocation reflectionInvocation = null;
-    public Object listener = null;
-    public Method method = null;
-    public MethodAccess handler = null;
-    public int handleIndex = 0;
+    public SubscriptionManager subscriptionManager = null;
+    public Subscription[] subscriptions = null;
+    public Subscription[] superSubscriptions = null;
+
+    public CompletableFuture<Void> completion = null;
 
     public
     MessageHolder() {}
@@ -51,19 +48,18 @@ class MessageHolder {
      */
     public
     void clear() {
-        type = MessageType.ASM_ONE;
+        type = MessageType.DISPATCH_ONE;
 
         message1 = null;
         message2 = null;
         message3 = null;
 
         errorHandler = null;
-        asmInvocation = null;
-        reflectionInvocation = null;
-        listener = null;
-        method = null;
 
-        handler = null;
-        handleIndex = 0;
+        subscriptionManager = null;
+        subscriptions = null;
+        superSubscriptions = null;
+
+        completion = null;
     }
 }
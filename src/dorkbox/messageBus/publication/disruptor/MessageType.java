@@ -19,14 +19,13 @@ package dorkbox.messageBus.publication.disruptor;
  * @author dorkbox, llc Date: 2/2/15
  */
 public final class MessageType {
-    public static final int ASM_ONE = 1;
-    public static final int REFLECT_ONE = 2;
+    // the subscriptions are resolved, but the worker must "fan out" the message to all the listeners
+    public static final int DISPATCH_ONE = 1;
+    public static final int DISPATCH_TWO = 2;
+    public static final int DISPATCH_THREE = 3;
 
-    public static final int ASM_TWO = 3;
-    public static final int REFLECT_TWO = 4;
-
-    public static final int ASM_THREE = 5;
-    public static final int REFLECT_THREE = 6;
+    // the same as DISPATCH_ONE, however the completion is completed once all the listeners have been notified
+    public static final int DISPATCH_TRACKED = 4;
 
     private MessageType() {
     }
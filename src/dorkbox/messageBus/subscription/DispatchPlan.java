@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription;
+
+import java.util.ArrayList;
+
+/**
+ * Everything that is needed to publish a message type (or a combination of message types), resolved ahead of time so that publication
+ * is a single lookup.
+ * <p>
+ * The exact subscriptions (then the super type subscriptions) are merged into a single array. If there are no subscriptions at all,
+ * the plan is "dead", and holds the subscriptions for {@link dorkbox.messageBus.error.DeadMessage} instead.
+ * <p>
+ * Plans never change, they are replaced when the subscriptions change. Unsubscribing a listener does not replace the plans, because
+ * the listeners are removed from the subscriptions themselves.
+ *
+ * @author dorkbox, llc
+ */
+public final
+class DispatchPlan {
+    private static final Subscription[] EMPTY_SUBS = new Subscription[0];
+
+    private final Subscription[] subscriptions;
+    private final boolean dead;
+
+    /**
+     * @param subscriptions the exact subscriptions, can be null
+     * @param superSubscriptions the super type subscriptions, can be null
+     * @param deadSubscriptions the subscriptions for dead messages, can be null
+     */
+    static
+    DispatchPlan create(final Subscription[] subscriptions, final Subscription[] superSubscriptions,
+                        final Subscription[] deadSubscriptions) {
+
+        final int subLength = subscriptions == null ? 0 : subscriptions.length;
+        final int superLength = superSubscriptions == null ? 0 : superSubscriptions.length;
+
+        if (subLength + superLength == 0) {
+            return new DispatchPlan(deadSubscriptions == null ? EMPTY_SUBS : deadSubscriptions, true);
+        }
+
+        if (superLength == 0) {
+            return new DispatchPlan(subscriptions, false);
+        }
+
+        final ArrayList<Subscription> merged = new ArrayList<Subscription>(subLength + superLength);
+        for (int i = 0; i < subLength; i++) {
+            merged.add(subscriptions[i]);
+        }
+
+        Subscription sub;
+        for (int i = 0; i < superLength; i++) {
+            sub = superSubscriptions[i];
+
+            // the same subscription is never published twice
+            if (!containsIdentity(merged, sub)) {
+                merged.add(sub);
+            }
+        }
+
+        return new DispatchPlan(merged.toArray(new Subscription[merged.size()]), false);
+    }
+
+    private static
+    boolean containsIdentity(final ArrayList<Subscription> subscriptions, final Subscription subscription) {
+        for (int i = 0, size = subscriptions.size(); i < size; i++) {
+            if (subscriptions.get(i) == subscription) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private
+    DispatchPlan(final Subscription[] subscriptions, final boolean dead) {
+        this.subscriptions = subscriptions;
+        this.dead = dead;
+    }
+
+    /**
+     * @return the subscriptions to publish to, in the order they are published. If this plan is dead, these are the subscriptions for
+     *         dead messages. Never null
+     */
+    public
+    Subscription[] getSubscriptions() {
+        return subscriptions;
+    }
+
+    /**
+     * @return true if there are no subscriptions for the message type, and the message must be published as a dead message instead
+     */
+    public
+    boolean isDead() {
+        return dead;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import com.conversantmedia.util.concurrent.ConcurrentQueue;
+import com.conversantmedia.util.concurrent.MultithreadConcurrentQueue;
+
+import dorkbox.messageBus.publication.Backoff;
+
+/**
+ * The bounded mailbox of a single {@link dorkbox.messageBus.annotations.Delivery#Mailbox} listener. Any number of threads can post
+ * messages to it, but they are only ever handled by one thread at a time.
+ * <p>
+ * The mailbox is only scheduled onto the worker pool when it changes from empty to non-empty, and it gives the worker back after a
+ * few messages, so that a busy listener does not starve the other listeners.
+ *
+ * @author dorkbox, llc
+ */
+final
+class Mailbox implements Runnable {
+
+    // how many messages are handled before the worker is given back to the pool
+    private static final int THROUGHPUT = 64;
+
+    private final Mailboxes mailboxes;
+    private final ConcurrentQueue<Runnable> queue;
+
+    // true while this mailbox is waiting in (or running on) the worker pool
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // the thread that is currently handling the messages, so that handlers can publish to their own listener
+    private volatile Thread owner = null;
+
+    // the messages that the handlers posted to their own (full) mailbox, in order. Only the thread that is handling the messages uses
+    // this, and they are moved to the back of the queue as soon as there is room
+    private final ArrayDeque<Runnable> overflow = new ArrayDeque<Runnable>();
+
+    Mailbox(final Mailboxes mailboxes, final int capacity) {
+        this.mailboxes = mailboxes;
+        this.queue = new MultithreadConcurrentQueue<Runnable>(capacity);
+    }
+
+    /**
+     * Adds the message to this mailbox, and schedules the mailbox if it is not already scheduled. When the mailbox is full, this blocks
+     * until there is room.
+     *
+     * @param message this is responsible for reporting its own errors
+     */
+    void post(final Runnable message) {
+        // counted before a worker can see the message, otherwise awaitQuiescence() could see it delivered before it was posted
+        mailboxes.posted.increment();
+
+        if (owner == Thread.currentThread()) {
+            // a handler is publishing to its own listener. If the mailbox is full, waiting would never end (this is the only thread that
+            // handles its messages), so the message waits in the overflow instead. The mailbox is already running, and is scheduled again
+            // by run() if there is anything left
+            if (!overflow.isEmpty() || !queue.offer(message)) {
+                overflow.add(message);
+            }
+            return;
+        }
+
+        long parkNanos = Backoff.MIN_PARK_NANOS;
+
+        while (!queue.offer(message)) {
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos << 1, Backoff.MAX_PARK_NANOS);
+        }
+
+        try {
+            schedule();
+        } catch (RejectedExecutionException e) {
+            // the bus has been shutdown, so the message is never handled
+            mailboxes.posted.decrement();
+            throw e;
+        }
+    }
+
+    private
+    void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                mailboxes.execute(this);
+            } catch (RejectedExecutionException e) {
+                // the bus has been shutdown
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Moves the overflow to the back of the queue, for as long as there is room. This must only be called by the owner.
+     */
+    private
+    void transferOverflow() {
+        Runnable message;
+        while ((message = overflow.peek()) != null && queue.offer(message)) {
+            overflow.poll();
+        }
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    @Override
+    public
+    void run() {
+        owner = Thread.currentThread();
+
+        try {
+            Runnable message;
+            for (int i = 0; i < THROUGHPUT; i++) {
+                transferOverflow();
+
+                message = queue.poll();
+                if (message == null) {
+                    break;
+                }
+
+                message.run();
+                mailboxes.delivered.increment();
+            }
+
+            // if anything is still in the overflow, then the queue is full and this mailbox is scheduled again
+            transferOverflow();
+        } finally {
+            owner = null;
+            scheduled.set(false);
+        }
+
+        // there are either more messages than THROUGHPUT, or a message was posted after the last poll (but before 'scheduled' was reset)
+        if (!queue.isEmpty()) {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+import dorkbox.collections.IdentityMap;
+import dorkbox.messageBus.MessageBusConfig;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.publication.Backoff;
+import dorkbox.messageBus.publication.TrackedPublication;
+
+/**
+ * Keeps track of the mailbox for every subscribed {@link dorkbox.messageBus.annotations.Delivery#Mailbox} listener, and owns the
+ * worker pool that the mailboxes are scheduled on.
+ * <p>
+ * Mailboxes are only added/removed during subscribe/unsubscribe (single-writer principle), and the map is copied when it changes, so
+ * that publication can always read it without locks.
+ *
+ * @author dorkbox, llc
+ */
+public
+class Mailboxes {
+
+    private final MessageBusConfig config;
+    private final ErrorHandler errorHandler;
+    private final int mailboxCapacity;
+    private final long shutdownTimeoutNanos;
+
+    // shared with copies, so that the worker pool is only created once (when the first mailbox listener subscribes). Only the original
+    // can shut it down
+    private final AtomicReference<ExecutorService> executorREF;
+
+    // how many messages have been posted to (and handled by) the mailboxes
+    final LongAdder posted = new LongAdder();
+    final LongAdder delivered = new LongAdder();
+
+    // copy-on-write, only modified during SUB/UNSUB
+    private volatile IdentityMap<Object, Mailbox> mailboxes = new IdentityMap<Object, Mailbox>(8, SubscriptionManager.LOAD_FACTOR);
+
+    private static final AtomicReferenceFieldUpdater<Mailboxes, IdentityMap> mailboxesREF =
+                    AtomicReferenceFieldUpdater.newUpdater(Mailboxes.class,
+                                                           IdentityMap.class,
+                                                           "mailboxes");
+
+    public
+    Mailboxes(final MessageBusConfig config, final ErrorHandler errorHandler) {
+        this.config = config;
+        this.errorHandler = errorHandler;
+        this.mailboxCapacity = config.getMailboxCapacity();
+        this.shutdownTimeoutNanos = config.getShutdownTimeoutNanos();
+        this.executorREF = new AtomicReference<ExecutorService>();
+    }
+
+    /**
+     * Shares the worker pool with the original, but has its own mailboxes.
+     */
+    public
+    Mailboxes(final Mailboxes mailboxes, final ErrorHandler errorHandler) {
+        this.config = mailboxes.config;
+        this.errorHandler = errorHandler;
+        this.mailboxCapacity = mailboxes.mailboxCapacity;
+        this.shutdownTimeoutNanos = mailboxes.shutdownTimeoutNanos;
+        this.executorREF = mailboxes.executorREF;
+    }
+
+    public
+    ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    void execute(final Runnable mailbox) {
+        // a mailbox only exists after register(), which created the worker pool
+        executorREF.get().execute(mailbox);
+    }
+
+    private
+    void createExecutor() {
+        // the copies share the worker pool, but not their lock
+        synchronized (executorREF) {
+            if (executorREF.get() != null) {
+                return;
+            }
+
+            // the queue only ever holds mailboxes that have messages (each one at most once)
+            final int numberOfThreads = config.getNumberOfThreads();
+            executorREF.set(new ThreadPoolExecutor(numberOfThreads, numberOfThreads,
+                                                   0L, TimeUnit.MILLISECONDS,
+                                                   new LinkedBlockingQueue<Runnable>(),
+                                                   config.getThreadFactory()));
+        }
+    }
+
+    /**
+     * single writer principle!
+     * called from within SYNCHRONIZE
+     */
+    void register(final Object listener) {
+        final IdentityMap<Object, Mailbox> current = mailboxesREF.get(this);
+        if (!current.containsKey(listener)) {
+            if (executorREF.get() == null) {
+                createExecutor();
+            }
+
+            final IdentityMap<Object, Mailbox> copy = new IdentityMap<Object, Mailbox>(current);
+            copy.put(listener, new Mailbox(this, mailboxCapacity));
+            mailboxesREF.lazySet(this, copy);
+        }
+    }
+
+    /**
+     * single writer principle!
+     * called from within SYNCHRONIZE
+     */
+    void unregister(final Object listener) {
+        final IdentityMap<Object, Mailbox> current = mailboxesREF.get(this);
+        if (current.containsKey(listener)) {
+            final IdentityMap<Object, Mailbox> copy = new IdentityMap<Object, Mailbox>(current);
+            copy.remove(listener);
+            mailboxesREF.lazySet(this, copy);
+        }
+    }
+
+    /**
+     * Posts a message to the mailbox of the listener. Messages for listeners that are no longer subscribed are ignored, the same as
+     * for every other listener.
+     *
+     * @param message this is responsible for reporting its own errors
+     */
+    public
+    void post(final Object listener, final Runnable message) {
+        @SuppressWarnings("unchecked")
+        final Mailbox mailbox = (Mailbox) mailboxesREF.get(this).get(listener);
+        if (mailbox == null) {
+            return;
+        }
+
+        final TrackedPublication tracked = TrackedPublication.current();
+        if (tracked == null) {
+            mailbox.post(message);
+            return;
+        }
+
+        // a tracked publication is only complete once the message has been handled
+        try {
+            mailbox.post(tracked.handOff(message));
+        } catch (RuntimeException e) {
+            // the bus has been shutdown, and the message will never be handled
+            tracked.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return how many messages are waiting in the mailboxes, or are currently being handled
+     */
+    public
+    long pendingCount() {
+        return Math.max(0L, posted.sum() - delivered.sum());
+    }
+
+    /**
+     * Waits until every message that was posted to the mailboxes before this call has been handled.
+     *
+     * @return false if the timeout elapsed first, or if the thread was interrupted
+     */
+    public
+    boolean awaitQuiescence(final long timeoutNanos) {
+        // every message posted before now is included in this count
+        final long target = posted.sum();
+
+        final long deadline = System.nanoTime() + timeoutNanos;
+        long parkNanos = Backoff.MIN_PARK_NANOS;
+        while (delivered.sum() < target) {
+            parkNanos = Backoff.park(parkNanos, deadline);
+            if (parkNanos < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * called within SYNCHRONIZE
+     */
+    void clear() {
+        mailboxesREF.lazySet(this, new IdentityMap<Object, Mailbox>(8, SubscriptionManager.LOAD_FACTOR));
+    }
+
+    /**
+     * Waits for the messages in the mailboxes to be handled, then stops the worker pool (if it was ever created).
+     */
+    public
+    void shutdown() {
+        final ExecutorService executor = executorREF.get();
+        if (executor == null) {
+            // no mailbox listener ever subscribed
+            return;
+        }
+
+        awaitQuiescence(shutdownTimeoutNanos);
+
+        // This uses Thread.interrupt()
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import dorkbox.collections.IdentityMap;
+
+/**
+ * A cache of values that are calculated during publication (by any number of threads at the same time), and that are discarded when
+ * the subscriptions change.
+ * <p>
+ * The map is never modified once it is visible to other threads. Adding a value copies the map, and the copy is published with a CAS,
+ * so reading is a single volatile read and a lookup.
+ * <p>
+ * Every time values are discarded the generation changes. A value calculated from the subscriptions before they changed is refused,
+ * so it can never be added after the subscriptions have changed.
+ * <p>
+ * The message types that a value was calculated for are kept with it, so that only the values affected by new subscriptions have to be
+ * discarded.
+ *
+ * @author dorkbox, llc
+ */
+@SuppressWarnings("unchecked")
+final
+class SnapshotCache<K, V> {
+
+    /**
+     * Decides which cached values are no longer correct, after the subscriptions have changed.
+     */
+    interface Invalidator<V> {
+        /**
+         * @param messageTypes the message types that the value was calculated for
+         */
+        boolean isAffected(Class<?>[] messageTypes, V value);
+    }
+
+    private static final
+    class Snapshot<K, V> {
+        private final int generation;
+        private final IdentityMap<K, V> values;
+        private final IdentityMap<K, Class<?>[]> messageTypes;
+
+        private
+        Snapshot(final int generation, final IdentityMap<K, V> values, final IdentityMap<K, Class<?>[]> messageTypes) {
+            this.generation = generation;
+            this.values = values;
+            this.messageTypes = messageTypes;
+        }
+    }
+
+    private static final AtomicReferenceFieldUpdater<SnapshotCache, Snapshot> snapshotREF =
+                    AtomicReferenceFieldUpdater.newUpdater(SnapshotCache.class,
+                                                           Snapshot.class,
+                                                           "snapshot");
+
+    private volatile Snapshot<K, V> snapshot = new Snapshot<K, V>(0,
+                                                                  new IdentityMap<K, V>(32, SubscriptionManager.LOAD_FACTOR),
+                                                                  new IdentityMap<K, Class<?>[]>(32, SubscriptionManager.LOAD_FACTOR));
+
+    SnapshotCache() {
+    }
+
+    /**
+     * @return the cached value, or null if it has not been calculated
+     */
+    V get(final K key) {
+        return snapshot.values.get(key);
+    }
+
+    /**
+     * This must be read BEFORE calculating a value, so that {@link #put(Object, Class[], Object, int)} can tell if the subscriptions
+     * changed while the value was being calculated.
+     */
+    int getGeneration() {
+        return snapshot.generation;
+    }
+
+    /**
+     * Adds the value, unless another thread already added a value for the same key.
+     *
+     * @param messageTypes the message types that the value was calculated for
+     * @param generation the generation from before the value was calculated
+     *
+     * @return the value in the cache for the key, or null if values were discarded since the generation (and the value must be
+     *         calculated again)
+     */
+    V put(final K key, final Class<?>[] messageTypes, final V value, final int generation) {
+        while (true) {
+            final Snapshot<K, V> current = snapshot;
+            if (current.generation != generation) {
+                return null;
+            }
+
+            final V existing = current.values.get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            final IdentityMap<K, V> values = new IdentityMap<K, V>(current.values);
+            final IdentityMap<K, Class<?>[]> types = new IdentityMap<K, Class<?>[]>(current.messageTypes);
+            values.put(key, value);
+            types.put(key, messageTypes);
+
+            if (snapshotREF.compareAndSet(this, current, new Snapshot<K, V>(generation, values, types))) {
+                return value;
+            }
+
+            // another value was added (or values were discarded), so try again
+        }
+    }
+
+    /**
+     * Only called by the single writer, since the iteration of the cached values is not thread safe.
+     *
+     * @return the keys of the values that are affected, and the message types that the values were calculated for
+     */
+    IdentityMap<K, Class<?>[]> getAffected(final Invalidator<V> invalidator) {
+        final Snapshot<K, V> current = snapshot;
+        final IdentityMap<K, Class<?>[]> affected = new IdentityMap<K, Class<?>[]>(16, SubscriptionManager.LOAD_FACTOR);
+
+        for (IdentityMap.Entry<K, Class<?>[]> entry : current.messageTypes.entries()) {
+            final Class<?>[] messageTypes = entry.getValue();
+            if (invalidator.isAffected(messageTypes, current.values.get(entry.getKey()))) {
+                affected.put(entry.getKey(), messageTypes);
+            }
+        }
+
+        return affected;
+    }
+
+    /**
+     * Only called by the single writer. Discards all of the affected values, and adds the values that were calculated again (from the
+     * new subscriptions) in their place, so publication never has to calculate them. Values that are not affected are kept, and values
+     * that are currently being calculated are refused.
+     *
+     * @param messageTypes the keys of the replacements, and the message types that they were calculated for
+     * @param replacements the values that were calculated again
+     */
+    void replace(final Invalidator<V> invalidator, final IdentityMap<K, Class<?>[]> messageTypes, final IdentityMap<K, V> replacements) {
+        while (true) {
+            final Snapshot<K, V> current = snapshot;
+
+            final IdentityMap<K, V> values = new IdentityMap<K, V>(current.values);
+            final IdentityMap<K, Class<?>[]> types = new IdentityMap<K, Class<?>[]>(current.messageTypes);
+
+            // values can be added while the replacements are calculated, so they are checked again
+            for (IdentityMap.Entry<K, Class<?>[]> entry : current.messageTypes.entries()) {
+                final K key = entry.getKey();
+                if (invalidator.isAffected(entry.getValue(), current.values.get(key))) {
+                    values.remove(key);
+                    types.remove(key);
+                }
+            }
+
+            for (IdentityMap.Entry<K, V> entry : replacements.entries()) {
+                final K key = entry.getKey();
+                values.put(key, entry.getValue());
+                types.put(key, messageTypes.get(key));
+            }
+
+            if (snapshotREF.compareAndSet(this, current, new Snapshot<K, V>(current.generation + 1, values, types))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all of the values, and refuses all values that are currently being calculated
+     */
+    void clear() {
+        while (true) {
+            final Snapshot<K, V> current = snapshot;
+            final Snapshot<K, V> empty = new Snapshot<K, V>(current.generation + 1,
+                                                            new IdentityMap<K, V>(32, SubscriptionManager.LOAD_FACTOR),
+                                                            new IdentityMap<K, Class<?>[]>(32, SubscriptionManager.LOAD_FACTOR));
+
+            if (snapshotREF.compareAndSet(this, current, empty)) {
+                return;
+            }
+        }
+    }
+}
@@ -48,6 +48,9 @@ class Subscription<T> {
     // the handler's metadata -> for each handler in a listener, a unique subscription context is created
     private final MessageHandler handler;
 
+    // the publisher for the lane of the handler, or null for the default. This is set before the subscription is visible for publication
+    private Publisher lane = null;
+
     // This is only touched by a single thread!
     private final IdentityMap<Object, Entry> entries; // maintain a map of entries for FAST lookup during unsubscribe.
 
@@ -88,6 +91,22 @@ class Subscription<T> {
         return handler;
     }
 
+    /**
+     * @return the publisher that handles asynchronous messages for this subscription, or null if it uses the default publisher
+     */
+    public final
+    Publisher getLane() {
+        return lane;
+    }
+
+    /**
+     * called from within SYNCHRONIZE, before the subscription is visible for publication
+     */
+    final
+    void setLane(final Publisher lane) {
+        this.lane = lane;
+    }
+
     public abstract
     Entry<T> createEntry(final Object listener, final Entry head);
 
@@ -155,6 +174,14 @@ class Subscription<T> {
         return this.entries.size();
     }
 
+    /**
+     * @return true if there is at least one listener that would receive messages from this subscription
+     */
+    public final
+    boolean hasListeners() {
+        return headREF.get(this) != null;
+    }
+
     public abstract boolean publish(final Publisher publisher, final ErrorHandler errorHandler, final Object message);
     public abstract boolean publish(final Publisher publisher, final ErrorHandler errorHandler, final Object message1, final Object message2);
     public abstract boolean publish(final Publisher publisher, final ErrorHandler errorHandler, final Object message1, final Object message2, final Object message3);
@@ -16,15 +16,22 @@
 package dorkbox.messageBus.subscription;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import dorkbox.classUtil.ClassHierarchy;
 import dorkbox.collections.IdentityMap;
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.MessageBusConfig;
 import dorkbox.messageBus.SubscriptionMode;
-import dorkbox.messageBus.common.ClassTree;
+import dorkbox.messageBus.common.ClassTupleMap;
 import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.common.MultiClass;
+import dorkbox.messageBus.error.DeadMessage;
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.publication.Publisher;
 import dorkbox.messageBus.subscription.asm.AsmFactory;
 import dorkbox.messageBus.subscription.reflection.ReflectionFactory;
 
@@ -46,10 +53,42 @@ public final
 class SubscriptionManager {
     public static final float LOAD_FACTOR = 0.8F;
     private static final Subscription[] EMPTY_SUBS = new Subscription[0];
+    private static final Signature[] EMPTY_SIGNATURES = new Signature[0];
+
+    /**
+     * The message types of a multi-parameter handler, and the key of its subscriptions
+     */
+    private static final
+    class Signature {
+        private final Class<?>[] types;
+        private final MultiClass multiClass;
+
+        private
+        Signature(final Class<?>[] types, final MultiClass multiClass) {
+            this.types = types;
+            this.multiClass = multiClass;
+        }
+    }
+
+    // higher priority subscriptions are published to first. The sort is stable, so equal priorities keep their order
+    private static final Comparator<Subscription> PRIORITY_ORDER = new Comparator<Subscription>() {
+        @Override
+        public
+        int compare(final Subscription o1, final Subscription o2) {
+            return Integer.compare(o2.getHandler().getPriority(), o1.getHandler().getPriority());
+        }
+    };
 
     // controls if we use java reflection or ASM to access methods during publication
     private final SubscriptionFactory subscriptionFactory;
 
+    // the mailboxes for listeners that use mailbox delivery
+    private final Mailboxes mailboxes;
+
+    // the publishers for the lanes, by name
+    private final Map<String, Publisher> lanes;
+    private final ErrorHandler errorHandler;
+
 
     // ONLY used by SUB/UNSUB
     // remember already processed classes that do not contain any message handlers
@@ -67,9 +106,22 @@ class SubscriptionManager {
     private volatile IdentityMap<Class<?>, Subscription[]> subsSingle;
     private volatile IdentityMap<MultiClass, Subscription[]> subsMulti;
 
-    // keeps track of all subscriptions of the super classes of a message type.
-    private volatile IdentityMap<Class<?>, Subscription[]> subsSuperSingle;
-    private volatile IdentityMap<MultiClass, Subscription[]> subsSuperMulti;
+    // every signature (of 2 and 3 parameters) that has subscriptions, in the order they were first subscribed. Only modified by the
+    // single writer, and the arrays never change once they are visible, so finding the super subscriptions only has to check these
+    private volatile Signature[] signatures2 = EMPTY_SIGNATURES;
+    private volatile Signature[] signatures3 = EMPTY_SIGNATURES;
+
+    // keeps track of all subscriptions of the super classes of a message type. These are calculated during publication (by any thread)
+    private final SnapshotCache<Class<?>, Subscription[]> subsSuperSingle;
+    private final SnapshotCache<MultiClass, Subscription[]> subsSuperMulti;
+
+    // the merged (exact + super + dead) subscriptions of a message type, calculated during publication like the super subscriptions
+    private final SnapshotCache<Class<?>, DispatchPlan> plansSingle;
+    private final SnapshotCache<MultiClass, DispatchPlan> plansMulti;
+
+    // changed (after the caches above are updated) every time the subscription arrays for a message type might have changed. Only modified by the
+    // single writer, so anything that caches the arrays only has to compare this to know if the cache is still valid
+    private volatile long epoch = 0L;
 
     // In order to force the "single writer principle" for subscribe & unsubscribe, they are within SYNCHRONIZED.
     //
@@ -78,7 +130,7 @@ class SubscriptionManager {
     private final Object singleWriterLock = new Object();
 
 
-    private final ClassTree<Class<?>> classTree;
+    private final ClassTupleMap classTupleMap;
     private final ClassHierarchy classHierarchyUtils;
 
 
@@ -94,16 +146,6 @@ class SubscriptionManager {
                                                            "subsMulti");
 
 
-    private static final AtomicReferenceFieldUpdater<SubscriptionManager, IdentityMap> subsSuperSingleREF =
-                    AtomicReferenceFieldUpdater.newUpdater(SubscriptionManager.class,
-                                                           IdentityMap.class,
-                                                           "subsSuperSingle");
-
-    private static final AtomicReferenceFieldUpdater<SubscriptionManager, IdentityMap> subsSuperMultiREF =
-                    AtomicReferenceFieldUpdater.newUpdater(SubscriptionManager.class,
-                                                           IdentityMap.class,
-                                                           "subsSuperMulti");
-
     /**
      * By default, we use ASM for accessing methods during the dispatch of messages. This is only available on certain platforms, and so
      * it will gracefully 'fallback' to using standard java reflection to access the methods. "Standard java reflection" is not as fast
@@ -127,19 +169,36 @@ class SubscriptionManager {
 
     public
     SubscriptionManager(final SubscriptionMode subscriptionMode) {
-        boolean useStrongReferences = subscriptionMode == SubscriptionMode.StrongReferences;
+        this(MessageBus.builder().subscriptionMode(subscriptionMode).buildConfig());
+    }
+
+    public
+    SubscriptionManager(final MessageBusConfig config) {
+        this(config, new ErrorHandler(), new Mailboxes(config, new ErrorHandler()), Collections.<String, Publisher>emptyMap());
+    }
+
+    /**
+     * @param lanes the publishers for the lanes, by name. Handlers that use a lane which is not in this map use the default publisher
+     */
+    public
+    SubscriptionManager(final MessageBusConfig config, final ErrorHandler errorHandler, final Mailboxes mailboxes,
+                        final Map<String, Publisher> lanes) {
+        boolean useStrongReferences = config.getSubscriptionMode() == SubscriptionMode.StrongReferences;
+        this.errorHandler = errorHandler;
+        this.mailboxes = mailboxes;
+        this.lanes = lanes;
 
 
         // not all platforms support ASM. ASM is our default, and is just-as-fast and directly invoking the method
         if (useAsmForDispatch) {
-            this.subscriptionFactory = new AsmFactory(useStrongReferences);
+            this.subscriptionFactory = new AsmFactory(useStrongReferences, mailboxes);
         }
         else {
-            this.subscriptionFactory = new ReflectionFactory(useStrongReferences);
+            this.subscriptionFactory = new ReflectionFactory(useStrongReferences, mailboxes);
         }
 
         classHierarchyUtils = new ClassHierarchy(LOAD_FACTOR);
-        classTree = new ClassTree<Class<?>>();
+        classTupleMap = new ClassTupleMap();
 
 
         // modified ONLY during SUB/UNSUB
@@ -149,9 +208,11 @@ class SubscriptionManager {
         subsMulti = new IdentityMap<MultiClass, Subscription[]>(32, LOAD_FACTOR);
 
 
-        // modified during publication, however duplicates are OK, we we can "pretend" it's the same as the single-writer-principle
-        subsSuperSingle = new IdentityMap<Class<?>, Subscription[]>(32, LOAD_FACTOR);
-        subsSuperMulti = new IdentityMap<MultiClass, Subscription[]>(32, LOAD_FACTOR);
+        // modified during publication, by any number of threads at the same time
+        subsSuperSingle = new SnapshotCache<Class<?>, Subscription[]>();
+        subsSuperMulti = new SnapshotCache<MultiClass, Subscription[]>();
+        plansSingle = new SnapshotCache<Class<?>, DispatchPlan>();
+        plansMulti = new SnapshotCache<MultiClass, DispatchPlan>();
     }
 
     /**
@@ -185,11 +246,18 @@ class SubscriptionManager {
 
         this.subsSingle.clear();
         this.subsMulti.clear();
+        this.signatures2 = EMPTY_SIGNATURES;
+        this.signatures3 = EMPTY_SIGNATURES;
 
         this.subsSuperSingle.clear();
         this.subsSuperMulti.clear();
+        this.plansSingle.clear();
+        this.plansMulti.clear();
+        this.epoch++;
+
+        this.mailboxes.clear();
 
-        this.classTree.clear();
+        this.classTupleMap.clear();
         this.classHierarchyUtils.shutdown();
     }
 
@@ -252,11 +320,17 @@ class SubscriptionManager {
                 Class<?> handlerType;
 
 
+                // the mailbox must exist before the listener is visible for publication
+                if (messageHandlers[0].isMailbox()) {
+                    mailboxes.register(listener);
+                }
+
                 // Prepare all of the subscriptions and add for publication AND subscribe since the data structures are consistent
                 for (int i = 0; i < handlersSize; i++) {
                     messageHandler = messageHandlers[i];
 
                     subscription = subscriptionFactory.create(listenerClass, messageHandler);
+                    subscription.setLane(getLane(listenerClass, messageHandler));
                     subscription.subscribe(listener);  // register this callback listener to this subscription
                     subscriptions[i] = subscription;
 
@@ -275,11 +349,8 @@ class SubscriptionManager {
                             final Subscription[] newSubs;
                             Subscription[] currentSubs = singleSubs.get(handlerType);
                             if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
+                                // add the new subscription to the array (higher priority first)
+                                newSubs = addByPriority(currentSubs, subscription);
                             } else {
                                 newSubs = new Subscription[1];
                                 newSubs[0] = subscription;
@@ -296,11 +367,8 @@ class SubscriptionManager {
                             final Subscription[] newSubs;
                             Subscription[] currentSubs = singleSubs.get(handlerType);
                             if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
+                                // add the new subscription to the array (higher priority first)
+                                newSubs = addByPriority(currentSubs, subscription);
                             } else {
                                 newSubs = new Subscription[1];
                                 newSubs[0] = subscription;
@@ -312,21 +380,20 @@ class SubscriptionManager {
                         }
 
                         case 2: {
-                            multiClass = classTree.get(messageHandlerTypes[0], messageHandlerTypes[1]);
+                            multiClass = classTupleMap.get(messageHandlerTypes[0], messageHandlerTypes[1]);
 
                             // makes this subscription visible for publication
                             final Subscription[] newSubs;
                             Subscription[] currentSubs = multiSubs.get(multiClass);
 
                             if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
+                                // add the new subscription to the array (higher priority first)
+                                newSubs = addByPriority(currentSubs, subscription);
                             } else {
                                 newSubs = new Subscription[1];
                                 newSubs[0] = subscription;
+
+                                signatures2 = addSignature(signatures2, messageHandlerTypes, multiClass);
                             }
 
                             multiSubs.put(multiClass, newSubs);
@@ -334,21 +401,20 @@ class SubscriptionManager {
                         }
 
                         case 3: {
-                            multiClass = classTree.get(messageHandlerTypes[0], messageHandlerTypes[1], messageHandlerTypes[2]);
+                            multiClass = classTupleMap.get(messageHandlerTypes[0], messageHandlerTypes[1], messageHandlerTypes[2]);
 
                             // makes this subscription visible for publication
                             final Subscription[] newSubs;
                             Subscription[] currentSubs = multiSubs.get(multiClass);
 
                             if (currentSubs != null) {
-                                final int currentLength = currentSubs.length;
-
-                                // add the new subscription to the array
-                                newSubs = Arrays.copyOf(currentSubs, currentLength + 1, Subscription[].class);
-                                newSubs[currentLength] = subscription;
+                                // add the new subscription to the array (higher priority first)
+                                newSubs = addByPriority(currentSubs, subscription);
                             } else {
                                 newSubs = new Subscription[1];
                                 newSubs[0] = subscription;
+
+                                signatures3 = addSignature(signatures3, messageHandlerTypes, multiClass);
                             }
 
                             multiSubs.put(multiClass, newSubs);
@@ -370,18 +436,19 @@ class SubscriptionManager {
                 subsMultiREF.lazySet(this, multiSubs);
 
 
-                // only dump the super subscriptions if it is a COMPLETELY NEW subscription.
-                // If it's not new, then the hierarchy isn't changing for super subscriptions
-                IdentityMap<Class<?>, Subscription[]> superSingleSubs = subsSuperSingleREF.get(this);
-                superSingleSubs.clear();
-                subsSuperSingleREF.lazySet(this, superSingleSubs);
+                // only replace the super subscriptions if it is a COMPLETELY NEW subscription.
+                // If it's not new, then the hierarchy isn't changing for super subscriptions.
+                replaceAffected(messageHandlers);
 
-                IdentityMap<MultiClass, Subscription[]> superMultiSubs = subsSuperMultiREF.get(this);
-                superMultiSubs.clear();
-                subsSuperMultiREF.lazySet(this, superMultiSubs);
+                // cached subscriptions must be resolved again
+                epoch++;
             }
             else {
                 // subscriptions already exist and must only be updated
+                if (subscriptions[0].getHandler().isMailbox()) {
+                    mailboxes.register(listener);
+                }
+
                 Subscription subscription;
                 for (int i = 0; i < subscriptions.length; i++) {
                     subscription = subscriptions[i];
@@ -392,6 +459,186 @@ class SubscriptionManager {
     }
 
 
+    /**
+     * called from within SYNCHRONIZE
+     *
+     * Only the cached values for message types that the new handlers can receive are affected by the new subscriptions, so the values
+     * for every other message type are kept. The affected values are calculated again here, and replace the old values at the same
+     * time that they are discarded, so publication does not have to calculate them.
+     */
+    private
+    void replaceAffected(final MessageHandler[] messageHandlers) {
+        final int handlersSize = messageHandlers.length;
+        final Class<?>[][] handledTypes = new Class<?>[handlersSize][];
+        boolean handlesDeadMessages = false;
+
+        Class<?>[] messageHandlerTypes;
+        for (int i = 0; i < handlersSize; i++) {
+            messageHandlerTypes = messageHandlers[i].getHandledMessages();
+
+            if (messageHandlerTypes.length == 0) {
+                // the SAME THING as having Void as a parameter
+                messageHandlerTypes = new Class<?>[] {Void.class};
+            }
+            else if (messageHandlerTypes.length == 1 && messageHandlerTypes[0] == DeadMessage.class) {
+                handlesDeadMessages = true;
+            }
+
+            handledTypes[i] = messageHandlerTypes;
+        }
+
+        final SnapshotCache.Invalidator<Subscription[]> superSubsInvalidator = new SnapshotCache.Invalidator<Subscription[]>() {
+            @Override
+            public
+            boolean isAffected(final Class<?>[] messageTypes, final Subscription[] value) {
+                return canHandle(handledTypes, messageTypes);
+            }
+        };
+
+        // dead plans also hold the dead message subscriptions
+        final boolean deadPlansAffected = handlesDeadMessages;
+        final SnapshotCache.Invalidator<DispatchPlan> planInvalidator = new SnapshotCache.Invalidator<DispatchPlan>() {
+            @Override
+            public
+            boolean isAffected(final Class<?>[] messageTypes, final DispatchPlan value) {
+                return (deadPlansAffected && value.isDead()) || canHandle(handledTypes, messageTypes);
+            }
+        };
+
+
+        // The super subscriptions are replaced before the plans, because the plans are calculated from them
+        IdentityMap<Class<?>, Class<?>[]> affectedSingle = subsSuperSingle.getAffected(superSubsInvalidator);
+        final IdentityMap<Class<?>, Subscription[]> superSingle = new IdentityMap<Class<?>, Subscription[]>(16, LOAD_FACTOR);
+        for (IdentityMap.Entry<Class<?>, Class<?>[]> entry : affectedSingle.entries()) {
+            superSingle.put(entry.getKey(), createSuperSubs(entry.getKey()));
+        }
+        subsSuperSingle.replace(superSubsInvalidator, affectedSingle, superSingle);
+
+        IdentityMap<MultiClass, Class<?>[]> affectedMulti = subsSuperMulti.getAffected(superSubsInvalidator);
+        final IdentityMap<MultiClass, Subscription[]> superMulti = new IdentityMap<MultiClass, Subscription[]>(16, LOAD_FACTOR);
+        for (IdentityMap.Entry<MultiClass, Class<?>[]> entry : affectedMulti.entries()) {
+            final Class<?>[] messageTypes = entry.getValue();
+            if (messageTypes.length == 2) {
+                superMulti.put(entry.getKey(), createSuperSubs(messageTypes[0], messageTypes[1]));
+            }
+            else {
+                superMulti.put(entry.getKey(), createSuperSubs(messageTypes[0], messageTypes[1], messageTypes[2]));
+            }
+        }
+        subsSuperMulti.replace(superSubsInvalidator, affectedMulti, superMulti);
+
+
+        affectedSingle = plansSingle.getAffected(planInvalidator);
+        final IdentityMap<Class<?>, DispatchPlan> plans = new IdentityMap<Class<?>, DispatchPlan>(16, LOAD_FACTOR);
+        for (IdentityMap.Entry<Class<?>, Class<?>[]> entry : affectedSingle.entries()) {
+            final Class<?> messageClass = entry.getKey();
+            plans.put(messageClass, DispatchPlan.create(getSubs(messageClass), getSuperSubs(messageClass), getSubs(DeadMessage.class)));
+        }
+        plansSingle.replace(planInvalidator, affectedSingle, plans);
+
+        affectedMulti = plansMulti.getAffected(planInvalidator);
+        final IdentityMap<MultiClass, DispatchPlan> multiPlans = new IdentityMap<MultiClass, DispatchPlan>(16, LOAD_FACTOR);
+        for (IdentityMap.Entry<MultiClass, Class<?>[]> entry : affectedMulti.entries()) {
+            final Class<?>[] messageTypes = entry.getValue();
+            if (messageTypes.length == 2) {
+                multiPlans.put(entry.getKey(), DispatchPlan.create(getSubs(messageTypes[0], messageTypes[1]),
+                                                                   getSuperSubs(messageTypes[0], messageTypes[1]),
+                                                                   getSubs(DeadMessage.class)));
+            }
+            else {
+                multiPlans.put(entry.getKey(), DispatchPlan.create(getSubs(messageTypes[0], messageTypes[1], messageTypes[2]),
+                                                                   getSuperSubs(messageTypes[0], messageTypes[1], messageTypes[2]),
+                                                                   getSubs(DeadMessage.class)));
+            }
+        }
+        plansMulti.replace(planInvalidator, affectedMulti, multiPlans);
+    }
+
+    /**
+     * @return true if any of the handled types can receive the message types (even if the handler does not accept subtypes)
+     */
+    private static
+    boolean canHandle(final Class<?>[][] handledTypes, final Class<?>[] messageTypes) {
+        final int length = messageTypes.length;
+
+        Class<?>[] types;
+        for (int i = 0; i < handledTypes.length; i++) {
+            types = handledTypes[i];
+            if (types.length != length) {
+                continue;
+            }
+
+            boolean assignable = true;
+            for (int j = 0; j < length && assignable; j++) {
+                assignable = types[j].isAssignableFrom(messageTypes[j]);
+            }
+
+            if (assignable) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * called from within SYNCHRONIZE
+     *
+     * @return a copy of the subscriptions with the new subscription added, after all of the subscriptions with the same (or higher)
+     *         priority. This way, publication never has to sort the subscriptions.
+     */
+    private static
+    Subscription[] addByPriority(final Subscription[] currentSubs, final Subscription subscription) {
+        final int currentLength = currentSubs.length;
+        final int priority = subscription.getHandler().getPriority();
+
+        int index = currentLength;
+        while (index > 0 && currentSubs[index - 1].getHandler().getPriority() < priority) {
+            index--;
+        }
+
+        final Subscription[] newSubs = new Subscription[currentLength + 1];
+        System.arraycopy(currentSubs, 0, newSubs, 0, index);
+        newSubs[index] = subscription;
+        System.arraycopy(currentSubs, index, newSubs, index + 1, currentLength - index);
+        return newSubs;
+    }
+
+    /**
+     * called from within SYNCHRONIZE
+     *
+     * @return a copy of the signatures with the new signature added at the end
+     */
+    private static
+    Signature[] addSignature(final Signature[] signatures, final Class<?>[] messageTypes, final MultiClass multiClass) {
+        final int length = signatures.length;
+
+        final Signature[] newSignatures = new Signature[length + 1];
+        System.arraycopy(signatures, 0, newSignatures, 0, length);
+        newSignatures[length] = new Signature(messageTypes, multiClass);
+        return newSignatures;
+    }
+
+    /**
+     * called from within SYNCHRONIZE
+     *
+     * @return the publisher for the lane of the handler, or null if it uses the default publisher
+     */
+    private
+    Publisher getLane(final Class<?> listenerClass, final MessageHandler messageHandler) {
+        final String name = messageHandler.getLane();
+        if (name.isEmpty()) {
+            return null;
+        }
+
+        final Publisher lane = lanes.get(name);
+        if (lane == null) {
+            errorHandler.handleError("The lane '" + name + "' for " + messageHandler.getMethod() + " is not defined, " +
+                                     "so the default threads are used instead.", listenerClass);
+        }
+        return lane;
+    }
+
     /**
      * Un-subscribes a specific listener. The infrastructure for subscription never "shrinks", meaning that when a listener is un-subscribed,
      * the listeners are only removed from the internal map -- the map itself is not cleaned up until a 'shutdown' is called.
@@ -426,11 +673,26 @@ class SubscriptionManager {
                     subscription = subscriptions[i];
                     subscription.unsubscribe(listener);
                 }
+
+                if (subscriptions[0].getHandler().isMailbox()) {
+                    mailboxes.unregister(listener);
+                }
             }
         }
     }
 
 
+    /**
+     * The subscriptions (and super subscriptions) that are returned for a message type are the same until this changes. Unsubscribing a
+     * listener does not change the subscriptions, only the listeners inside of them.
+     *
+     * @return the current version of the subscriptions
+     */
+    public
+    long getEpoch() {
+        return epoch;
+    }
+
     /**
      * @return can return null
      */
@@ -446,8 +708,8 @@ class SubscriptionManager {
     public
     Subscription[] getSubs(final Class<?> messageClass1, final Class<?> messageClass2) {
         // never returns null
-        final MultiClass multiClass = classTree.get(messageClass1,
-                                                    messageClass2);
+        final MultiClass multiClass = classTupleMap.get(messageClass1,
+                                                        messageClass2);
         return (Subscription[]) subsMultiREF.get(this).get(multiClass);
     }
 
@@ -457,9 +719,9 @@ class SubscriptionManager {
     public
     Subscription[] getSubs(final Class<?> messageClass1, final Class<?> messageClass2, final Class<?> messageClass3) {
         // never returns null
-        final MultiClass multiClass = classTree.get(messageClass1,
-                                                    messageClass2,
-                                                    messageClass3);
+        final MultiClass multiClass = classTupleMap.get(messageClass1,
+                                                        messageClass2,
+                                                        messageClass3);
         return (Subscription[]) subsMultiREF.get(this).get(multiClass);
     }
 
@@ -471,72 +733,81 @@ class SubscriptionManager {
         // The subscriptions that are remembered here DO NOT CHANGE (only the listeners inside them change).
         // if we subscribe a NEW LISTENER super/child class -- THEN these subscriptions change!
         // we also DO NOT care about duplicates (since they will be the same anyways)
-        final IdentityMap<Class<?>, Subscription[]> localSuperSubs = subsSuperSingleREF.get(this);
-
-        Subscription[] subscriptions = localSuperSubs.get(messageClass);
+        Subscription[] subscriptions = subsSuperSingle.get(messageClass);
 
         // the only time this is null, is when subscriptions DO NOT exist, and they haven't been calculated. Otherwise, if they are
         // calculated and if they do not exist - this will be an empty array.
-        if (subscriptions == null) {
-            final Class<?>[] superClasses = this.classHierarchyUtils.getClassAndSuperClasses(messageClass);  // never returns null, cached response
+        while (subscriptions == null) {
+            // must be read before the subscriptions are
+            final int generation = subsSuperSingle.getGeneration();
 
-            final int length = superClasses.length;
-            final ArrayList<Subscription> subsAsList = new ArrayList<Subscription>(length);
+            // null if the subscriptions changed while calculating, in which case they are calculated again
+            subscriptions = subsSuperSingle.put(messageClass, new Class<?>[] {messageClass}, createSuperSubs(messageClass), generation);
+        }
 
-            final IdentityMap<Class<?>, Subscription[]> localSubs = subsSingleREF.get(this);
+        return subscriptions;
+    }
 
-            Class<?> superClass;
-            Subscription sub;
-            Subscription[] superSubs;
+    /**
+     * @return the subscriptions of the super classes of the message type, from the current subscriptions. Can NOT return null
+     */
+    private
+    Subscription[] createSuperSubs(final Class<?> messageClass) {
+        final Class<?>[] superClasses = this.classHierarchyUtils.getClassAndSuperClasses(messageClass);  // never returns null, cached response
 
-            MessageHandler handler;
-            Class<?>[] handledMessages;
-            boolean acceptsSubtypes;
-            Class<?> handledMessage;
+        final int length = superClasses.length;
+        final ArrayList<Subscription> subsAsList = new ArrayList<Subscription>(length);
 
-            // walks through all of the subscriptions that might exist for super types, and if applicable, save them.
-            for (int i = 0; i < length; i++) {
-                superClass = superClasses[i];
+        final IdentityMap<Class<?>, Subscription[]> localSubs = subsSingleREF.get(this);
 
-                // only go over subtypes (NON-EXACT class signature matches)
-                if (superClass == messageClass) {
-                    continue;
-                }
+        Class<?> superClass;
+        Subscription sub;
+        Subscription[] superSubs;
+
+        MessageHandler handler;
+        Class<?>[] handledMessages;
+        boolean acceptsSubtypes;
+        Class<?> handledMessage;
 
-                // check to see if we have a subscription for this
-                superSubs = localSubs.get(superClass);
+        // walks through all of the subscriptions that might exist for super types, and if applicable, save them.
+        for (int i = 0; i < length; i++) {
+            superClass = superClasses[i];
 
-                if (superSubs != null) {
-                    int superSubLength = superSubs.length;
-                    for (int j = 0; j < superSubLength; j++) {
-                        sub = superSubs[j];
+            // only go over subtypes (NON-EXACT class signature matches)
+            if (superClass == messageClass) {
+                continue;
+            }
 
-                        handler = sub.getHandler();
-                        handledMessages = handler.getHandledMessages();
-                        acceptsSubtypes = handler.acceptsSubtypes();
+            // check to see if we have a subscription for this
+            superSubs = localSubs.get(superClass);
 
-                        // check to see if our subscription can handle the superClass type. only 1 will exist for this subscription
-                        handledMessage = handledMessages[0];
-                        if (handledMessage.equals(messageClass)) {
-                            // exact type
-                            subsAsList.add(sub);
-                        }
-                        else if (acceptsSubtypes && handledMessage.isAssignableFrom(messageClass)) {
-                            // legit sub-type
-                            subsAsList.add(sub);
-                        }
+            if (superSubs != null) {
+                int superSubLength = superSubs.length;
+                for (int j = 0; j < superSubLength; j++) {
+                    sub = superSubs[j];
+
+                    handler = sub.getHandler();
+                    handledMessages = handler.getHandledMessages();
+                    acceptsSubtypes = handler.acceptsSubtypes();
+
+                    // check to see if our subscription can handle the superClass type. only 1 will exist for this subscription
+                    handledMessage = handledMessages[0];
+                    if (handledMessage.equals(messageClass)) {
+                        // exact type
+                        subsAsList.add(sub);
+                    }
+                    else if (acceptsSubtypes && handledMessage.isAssignableFrom(messageClass)) {
+                        // legit sub-type
+                        subsAsList.add(sub);
                     }
                 }
             }
-
-            // subsAsList now contains ALL of the super-class subscriptions.
-            subscriptions = subsAsList.toArray(EMPTY_SUBS);
-            localSuperSubs.put(messageClass, subscriptions);
-
-            subsSuperSingleREF.lazySet(this, localSuperSubs);
         }
 
-        return subscriptions;
+        // subsAsList now contains ALL of the super-class subscriptions. This is cached, so it is only sorted once
+        Collections.sort(subsAsList, PRIORITY_ORDER);
+
+        return subsAsList.toArray(EMPTY_SUBS);
     }
 
     /**
@@ -544,88 +815,92 @@ class SubscriptionManager {
      */
     public
     Subscription[] getSuperSubs(final Class<?> messageClass1, final Class<?> messageClass2) {
-        // save the subscriptions
-        final Class<?>[] superClasses1 = this.classHierarchyUtils.getClassAndSuperClasses(messageClass1);  // never returns null, cached response
-        final Class<?>[] superClasses2 = this.classHierarchyUtils.getClassAndSuperClasses(messageClass2);  // never returns null, cached response
-
-        final MultiClass origMultiClass = classTree.get(messageClass1, messageClass2);
+        final MultiClass origMultiClass = classTupleMap.get(messageClass1, messageClass2);
 
-        IdentityMap<MultiClass, Subscription[]> localSuperSubs = subsSuperMultiREF.get(this);
-        Subscription[] subscriptions = localSuperSubs.get(origMultiClass);
+        Subscription[] subscriptions = subsSuperMulti.get(origMultiClass);
 
         // the only time this is null, is when subscriptions DO NOT exist, and they haven't been calculated. Otherwise, if they are
         // calculated and if they do not exist - this will be an empty array.
-        if (subscriptions == null) {
-            final IdentityMap<MultiClass, Subscription[]> localSubs = subsMultiREF.get(this);
-
-            Class<?> superClass1;
-            Class<?> superClass2;
-            Subscription sub;
-            Subscription[] superSubs;
-
-            MessageHandler handler;
-            Class<?>[] handledMessages;
-            boolean acceptsSubtypes;
-            Class<?> handledMessage1;
-            Class<?> handledMessage2;
-
-            final int length1 = superClasses1.length;
-            final int length2 = superClasses2.length;
-
-            ArrayList<Subscription> subsAsList = new ArrayList<Subscription>(length1 + length2);
+        while (subscriptions == null) {
+            // must be read before the subscriptions are
+            final int generation = subsSuperMulti.getGeneration();
 
-            for (int i = 0; i < length1; i++) {
-                superClass1 = superClasses1[i];
+            // null if the subscriptions changed while calculating, in which case they are calculated again
+            subscriptions = subsSuperMulti.put(origMultiClass, new Class<?>[] {messageClass1, messageClass2},
+                                               createSuperSubs(messageClass1, messageClass2), generation);
+        }
 
-                for (int j = 0; j < length2; j++) {
-                    superClass2 = superClasses2[j];
+        return subscriptions;
+    }
 
-                    // only go over subtypes (NON-EXACT class signature matches)
-                    if (superClass1 == messageClass1 && superClass2 == messageClass2) {
-                        continue;
-                    }
+    /**
+     * Only the signatures that were subscribed are checked, so this does not depend on how deep the class hierarchies are.
+     *
+     * @return the subscriptions of the super classes of the message types, from the current subscriptions. Can NOT return null
+     */
+    private
+    Subscription[] createSuperSubs(final Class<?> messageClass1, final Class<?> messageClass2) {
+        final Signature[] signatures = this.signatures2;
+        final IdentityMap<MultiClass, Subscription[]> localSubs = subsMultiREF.get(this);
+
+        Signature signature;
+        Class<?>[] types;
+        Subscription sub;
+        Subscription[] superSubs;
+
+        MessageHandler handler;
+        Class<?>[] handledMessages;
+        boolean acceptsSubtypes;
+        Class<?> handledMessage1;
+        Class<?> handledMessage2;
+
+        final ArrayList<Subscription> subsAsList = new ArrayList<Subscription>();
+
+        for (int i = 0; i < signatures.length; i++) {
+            signature = signatures[i];
+            types = signature.types;
+
+            // only go over subtypes (NON-EXACT class signature matches)
+            if (types[0] == messageClass1 && types[1] == messageClass2) {
+                continue;
+            }
 
-                    // never returns null
-                    MultiClass multiClass = classTree.get(superClass1,
-                                                          superClass2);
+            if (!types[0].isAssignableFrom(messageClass1) || !types[1].isAssignableFrom(messageClass2)) {
+                continue;
+            }
 
-                    // check to see if we have a subscription for this
-                    superSubs = localSubs.get(multiClass);
+            // check to see if we have a subscription for this
+            superSubs = localSubs.get(signature.multiClass);
 
-                    if (superSubs != null) {
-                        for (int k = 0; k < superSubs.length; k++) {
-                            sub = superSubs[k];
+            if (superSubs != null) {
+                for (int k = 0; k < superSubs.length; k++) {
+                    sub = superSubs[k];
 
-                            handler = sub.getHandler();
-                            handledMessages = handler.getHandledMessages();
-                            acceptsSubtypes = handler.acceptsSubtypes();
+                    handler = sub.getHandler();
+                    handledMessages = handler.getHandledMessages();
+                    acceptsSubtypes = handler.acceptsSubtypes();
 
-                            handledMessage1 = handledMessages[0];
-                            handledMessage2 = handledMessages[1];
+                    handledMessage1 = handledMessages[0];
+                    handledMessage2 = handledMessages[1];
 
-                            if (handledMessage1.equals(messageClass1) &&
-                                handledMessage2.equals(messageClass2)) {
-                                // exact type
-                                subsAsList.add(sub);
-                            }
-                            else if (acceptsSubtypes && handledMessage1.isAssignableFrom(messageClass1) &&
-                                                        handledMessage2.isAssignableFrom(messageClass2)) {
-                                // legit sub-type
-                                subsAsList.add(sub);
-                            }
-                        }
+                    if (handledMessage1.equals(messageClass1) &&
+                        handledMessage2.equals(messageClass2)) {
+                        // exact type
+                        subsAsList.add(sub);
+                    }
+                    else if (acceptsSubtypes && handledMessage1.isAssignableFrom(messageClass1) &&
+                                                handledMessage2.isAssignableFrom(messageClass2)) {
+                        // legit sub-type
+                        subsAsList.add(sub);
                     }
                 }
             }
-
-            // subsAsList now contains ALL of the super-class subscriptions.
-            subscriptions = subsAsList.toArray(EMPTY_SUBS);
-            localSuperSubs.put(origMultiClass, subscriptions);
-
-            subsSuperMultiREF.lazySet(this, localSuperSubs);
         }
 
-        return subscriptions;
+        // subsAsList now contains ALL of the super-class subscriptions. This is cached, so it is only sorted once
+        Collections.sort(subsAsList, PRIORITY_ORDER);
+
+        return subsAsList.toArray(EMPTY_SUBS);
     }
 
     /**
@@ -633,101 +908,186 @@ class SubscriptionManager {
      */
     public
     Subscription[] getSuperSubs(final Class<?> messageClass1, final Class<?> messageClass2, final Class<?> messageClass3) {
-        // save the subscriptions
-        final Class<?>[] superClasses1 = this.classHierarchyUtils.getClassAndSuperClasses(messageClass1);  // never returns null, cached response
-        final Class<?>[] superClasses2 = this.classHierarchyUtils.getClassAndSuperClasses(messageClass2);  // never returns null, cached response
-        final Class<?>[] superClasses3 = this.classHierarchyUtils.getClassAndSuperClasses(messageClass3);  // never returns null, cached response
-
-        final MultiClass origMultiClass = classTree.get(messageClass1, messageClass2, messageClass3);
+        final MultiClass origMultiClass = classTupleMap.get(messageClass1, messageClass2, messageClass3);
 
-        IdentityMap<MultiClass, Subscription[]> localSuperSubs = subsSuperMultiREF.get(this);
-        Subscription[] subscriptions = localSuperSubs.get(origMultiClass);
+        Subscription[] subscriptions = subsSuperMulti.get(origMultiClass);
 
         // the only time this is null, is when subscriptions DO NOT exist, and they haven't been calculated. Otherwise, if they are
         // calculated and if they do not exist - this will be an empty array.
-        if (subscriptions == null) {
-            final IdentityMap<MultiClass, Subscription[]> localSubs = subsMultiREF.get(this);
-
-            Class<?> superClass1;
-            Class<?> superClass2;
-            Class<?> superClass3;
-            Subscription sub;
-            Subscription[] superSubs;
+        while (subscriptions == null) {
+            // must be read before the subscriptions are
+            final int generation = subsSuperMulti.getGeneration();
 
-            MessageHandler handler;
-            Class<?>[] handledMessages;
-            boolean acceptsSubtypes;
-            Class<?> handledMessage1;
-            Class<?> handledMessage2;
-            Class<?> handledMessage3;
+            // null if the subscriptions changed while calculating, in which case they are calculated again
+            subscriptions = subsSuperMulti.put(origMultiClass, new Class<?>[] {messageClass1, messageClass2, messageClass3},
+                                               createSuperSubs(messageClass1, messageClass2, messageClass3), generation);
+        }
 
-            final int length1 = superClasses1.length;
-            final int length2 = superClasses2.length;
-            final int length3 = superClasses3.length;
+        return subscriptions;
+    }
 
-            ArrayList<Subscription> subsAsList = new ArrayList<Subscription>(length1 + length2 + length3);
+    /**
+     * Only the signatures that were subscribed are checked, so this does not depend on how deep the class hierarchies are.
+     *
+     * @return the subscriptions of the super classes of the message types, from the current subscriptions. Can NOT return null
+     */
+    private
+    Subscription[] createSuperSubs(final Class<?> messageClass1, final Class<?> messageClass2, final Class<?> messageClass3) {
+        final Signature[] signatures = this.signatures3;
+        final IdentityMap<MultiClass, Subscription[]> localSubs = subsMultiREF.get(this);
+
+        Signature signature;
+        Class<?>[] types;
+        Subscription sub;
+        Subscription[] superSubs;
+
+        MessageHandler handler;
+        Class<?>[] handledMessages;
+        boolean acceptsSubtypes;
+        Class<?> handledMessage1;
+        Class<?> handledMessage2;
+        Class<?> handledMessage3;
+
+        final ArrayList<Subscription> subsAsList = new ArrayList<Subscription>();
+
+        for (int i = 0; i < signatures.length; i++) {
+            signature = signatures[i];
+            types = signature.types;
+
+            // only go over subtypes (NON-EXACT class signature matches)
+            if (types[0] == messageClass1 &&
+                types[1] == messageClass2 &&
+                types[2] == messageClass3) {
+                continue;
+            }
 
-            for (int i = 0; i < length1; i++) {
-                superClass1 = superClasses1[i];
+            if (!types[0].isAssignableFrom(messageClass1) ||
+                !types[1].isAssignableFrom(messageClass2) ||
+                !types[2].isAssignableFrom(messageClass3)) {
+                continue;
+            }
 
-                for (int j = 0; j < length2; j++) {
-                    superClass2 = superClasses2[j];
+            superSubs = localSubs.get(signature.multiClass);
 
-                    for (int k = 0; k < length3; k++) {
-                        superClass3 = superClasses3[k];
+            if (superSubs != null) {
+                for (int m = 0; m < superSubs.length; m++) {
+                    sub = superSubs[m];
 
+                    handler = sub.getHandler();
+                    handledMessages = handler.getHandledMessages();
+                    acceptsSubtypes = handler.acceptsSubtypes();
 
-                        // only go over subtypes (NON-EXACT class signature matches)
-                        if (superClass1 == messageClass1 &&
-                            superClass2 == messageClass2 &&
-                            superClass3 == messageClass3) {
-                            continue;
-                        }
+                    handledMessage1 = handledMessages[0];
+                    handledMessage2 = handledMessages[1];
+                    handledMessage3 = handledMessages[2];
 
-                        // never returns null
-                        MultiClass multiClass = classTree.get(superClass1,
-                                                              superClass2,
-                                                              superClass3);
-
-                        superSubs = localSubs.get(multiClass);
-
-                        if (superSubs != null) {
-                            for (int m = 0; m < superSubs.length; m++) {
-                                sub = superSubs[m];
-
-                                handler = sub.getHandler();
-                                handledMessages = handler.getHandledMessages();
-                                acceptsSubtypes = handler.acceptsSubtypes();
-
-                                handledMessage1 = handledMessages[0];
-                                handledMessage2 = handledMessages[1];
-                                handledMessage3 = handledMessages[2];
-
-                                if (handledMessage1.equals(messageClass1) &&
-                                    handledMessage2.equals(messageClass2) &&
-                                    handledMessage3.equals(messageClass3)) {
-                                    // exact type
-                                    subsAsList.add(sub);
-                                }
-                                else if (acceptsSubtypes && handledMessage1.isAssignableFrom(messageClass1) &&
-                                                            handledMessage2.isAssignableFrom(messageClass2) &&
-                                                            handledMessage3.isAssignableFrom(messageClass3)) {
-                                    // legit sub-type
-                                    subsAsList.add(sub);
-                                }
-                            }
-                        }
+                    if (handledMessage1.equals(messageClass1) &&
+                        handledMessage2.equals(messageClass2) &&
+                        handledMessage3.equals(messageClass3)) {
+                        // exact type
+                        subsAsList.add(sub);
+                    }
+                    else if (acceptsSubtypes && handledMessage1.isAssignableFrom(messageClass1) &&
+                                                handledMessage2.isAssignableFrom(messageClass2) &&
+                                                handledMessage3.isAssignableFrom(messageClass3)) {
+                        // legit sub-type
+                        subsAsList.add(sub);
                     }
                 }
             }
+        }
 
-            // subsAsList now contains ALL of the super-class subscriptions.
-            subscriptions = subsAsList.toArray(EMPTY_SUBS);
-            localSuperSubs.put(origMultiClass, subscriptions);
+        // subsAsList now contains ALL of the super-class subscriptions. This is cached, so it is only sorted once
+        Collections.sort(subsAsList, PRIORITY_ORDER);
 
-            subsSuperMultiREF.lazySet(this, localSuperSubs);
+        return subsAsList.toArray(EMPTY_SUBS);
+    }
+
+    /**
+     * The plan is created (and cached) the first time that it is needed, and created again after the subscriptions change.
+     *
+     * @return the subscriptions to publish the message type to (including super types), or the dead message subscriptions. Never null
+     */
+    public
+    DispatchPlan getPlan(final Class<?> messageClass) {
+        DispatchPlan plan = plansSingle.get(messageClass);
+
+        while (plan == null) {
+            // must be read before the subscriptions are
+            final int generation = plansSingle.getGeneration();
+
+            plan = DispatchPlan.create(getSubs(messageClass), getSuperSubs(messageClass), getSubs(DeadMessage.class));
+
+            // null if the subscriptions changed while calculating, in which case it is calculated again
+            plan = plansSingle.put(messageClass, new Class<?>[] {messageClass}, plan, generation);
         }
 
-        return subscriptions;
+        return plan;
+    }
+
+    /**
+     * The plan is NOT cached.
+     *
+     * @return the subscriptions to publish the message type to (excluding super types), or the dead message subscriptions. Never null
+     */
+    public
+    DispatchPlan createExactPlan(final Class<?> messageClass) {
+        return DispatchPlan.create(getSubs(messageClass), null, getSubs(DeadMessage.class));
+    }
+
+    /**
+     * The plan is created (and cached) the first time that it is needed, and created again after the subscriptions change.
+     *
+     * @return the subscriptions to publish the message types to (including super types), or the dead message subscriptions. Never null
+     */
+    public
+    DispatchPlan getPlan(final Class<?> messageClass1, final Class<?> messageClass2) {
+        // never returns null
+        final MultiClass multiClass = classTupleMap.get(messageClass1,
+                                                        messageClass2);
+
+        DispatchPlan plan = plansMulti.get(multiClass);
+
+        while (plan == null) {
+            // must be read before the subscriptions are
+            final int generation = plansMulti.getGeneration();
+
+            plan = DispatchPlan.create(getSubs(messageClass1, messageClass2), getSuperSubs(messageClass1, messageClass2),
+                                       getSubs(DeadMessage.class));
+
+            // null if the subscriptions changed while calculating, in which case it is calculated again
+            plan = plansMulti.put(multiClass, new Class<?>[] {messageClass1, messageClass2}, plan, generation);
+        }
+
+        return plan;
+    }
+
+    /**
+     * The plan is created (and cached) the first time that it is needed, and created again after the subscriptions change.
+     *
+     * @return the subscriptions to publish the message types to (including super types), or the dead message subscriptions. Never null
+     */
+    public
+    DispatchPlan getPlan(final Class<?> messageClass1, final Class<?> messageClass2, final Class<?> messageClass3) {
+        // never returns null
+        final MultiClass multiClass = classTupleMap.get(messageClass1,
+                                                        messageClass2,
+                                                        messageClass3);
+
+        DispatchPlan plan = plansMulti.get(multiClass);
+
+        while (plan == null) {
+            // must be read before the subscriptions are
+            final int generation = plansMulti.getGeneration();
+
+            plan = DispatchPlan.create(getSubs(messageClass1, messageClass2, messageClass3),
+                                       getSuperSubs(messageClass1, messageClass2, messageClass3), getSubs(DeadMessage.class));
+
+            // null if the subscriptions changed while calculating, in which case it is calculated again
+            plan = plansMulti.put(multiClass, new Class<?>[] {messageClass1, messageClass2, messageClass3}, plan,
+                                  generation);
+        }
+
+        return plan;
     }
 }
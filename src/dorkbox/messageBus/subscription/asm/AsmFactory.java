@@ -16,6 +16,7 @@
 package dorkbox.messageBus.subscription.asm;
 
 import dorkbox.messageBus.common.MessageHandler;
+import dorkbox.messageBus.subscription.Mailboxes;
 import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.subscription.SubscriptionFactory;
 
@@ -26,10 +27,12 @@ public
 class AsmFactory implements SubscriptionFactory {
 
     private final boolean useStrongReferencesByDefault;
+    private final Mailboxes mailboxes;
 
     public
-    AsmFactory(final boolean useStrongReferencesByDefault) {
+    AsmFactory(final boolean useStrongReferencesByDefault, final Mailboxes mailboxes) {
         this.useStrongReferencesByDefault = useStrongReferencesByDefault;
+        this.mailboxes = mailboxes;
     }
 
     @Override
@@ -39,7 +42,7 @@ class AsmFactory implements SubscriptionFactory {
         final int referenceType = handler.getReferenceType();
         if (referenceType == MessageHandler.UNDEFINED) {
             if (useStrongReferencesByDefault) {
-                return new SubscriptionAsmStrong(listenerClass, handler);
+                return new SubscriptionAsmStrong(listenerClass, handler, mailboxes);
             }
             else {
                 return new SubscriptionAsmWeak(listenerClass, handler);
@@ -49,7 +52,7 @@ class AsmFactory implements SubscriptionFactory {
             return new SubscriptionAsmWeak(listenerClass, handler);
         }
         else {
-            return new SubscriptionAsmStrong(listenerClass, handler);
+            return new SubscriptionAsmStrong(listenerClass, handler, mailboxes);
         }
     }
 }
@@ -45,6 +45,7 @@ import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.subscription.Entry;
 import dorkbox.messageBus.publication.Publisher;
+import dorkbox.messageBus.subscription.Mailboxes;
 import dorkbox.messageBus.subscription.Subscription;
 
 /**
@@ -71,12 +72,16 @@ class SubscriptionAsmStrong extends Subscription<Object> {
     private final int methodIndex;
 
     public
-    SubscriptionAsmStrong(final Class<?> listenerClass, final MessageHandler handler) {
+    SubscriptionAsmStrong(final Class<?> listenerClass, final MessageHandler handler, final Mailboxes mailboxes) {
         // we use ASM here
         super(listenerClass, handler);
 
         AsmInvocation invocation = new AsmReflectiveInvocation();
-        if (handler.isSynchronized()) {
+        if (handler.isMailbox()) {
+            // the mailbox already guarantees that only one handler of the listener is invoked at a time
+            invocation = new AsmMailboxInvocation(invocation, mailboxes);
+        }
+        else if (handler.isSynchronized()) {
             invocation = new AsmSynchronizedInvocation(invocation);
         }
 
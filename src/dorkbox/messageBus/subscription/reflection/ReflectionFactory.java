@@ -16,6 +16,7 @@
 package dorkbox.messageBus.subscription.reflection;
 
 import dorkbox.messageBus.common.MessageHandler;
+import dorkbox.messageBus.subscription.Mailboxes;
 import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.subscription.SubscriptionFactory;
 
@@ -27,10 +28,12 @@ public
 class ReflectionFactory implements SubscriptionFactory {
 
     private final boolean useStrongReferencesByDefault;
+    private final Mailboxes mailboxes;
 
     public
-    ReflectionFactory(final boolean useStrongReferencesByDefault) {
+    ReflectionFactory(final boolean useStrongReferencesByDefault, final Mailboxes mailboxes) {
         this.useStrongReferencesByDefault = useStrongReferencesByDefault;
+        this.mailboxes = mailboxes;
     }
 
     @Override
@@ -40,7 +43,7 @@ class ReflectionFactory implements SubscriptionFactory {
         final int referenceType = handler.getReferenceType();
         if (referenceType == MessageHandler.UNDEFINED) {
             if (useStrongReferencesByDefault) {
-                return new SubscriptionReflectionStrong(listenerClass, handler);
+                return new SubscriptionReflectionStrong(listenerClass, handler, mailboxes);
             }
             else {
                 return new SubscriptionReflectionWeak(listenerClass, handler);
@@ -50,7 +53,7 @@ class ReflectionFactory implements SubscriptionFactory {
             return new SubscriptionReflectionWeak(listenerClass, handler);
         }
         else {
-            return new SubscriptionReflectionStrong(listenerClass, handler);
+            return new SubscriptionReflectionStrong(listenerClass, handler, mailboxes);
         }
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messageBus.subscription.reflection;
+
+import java.lang.reflect.Method;
+
+import dorkbox.messageBus.error.ErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messageBus.subscription.Mailboxes;
+
+/**
+ * Posts message handler invocations to the mailbox of the listener, for all listeners that specify @Listener(delivery = Mailbox).
+ * <p>
+ * The invocation happens later, on the worker pool of the mailboxes, so errors are reported from there.
+ *
+ * @author dorkbox, llc
+ */
+@SuppressWarnings("Duplicates")
+public
+class ReflectionMailboxInvocation implements ReflectionInvocation {
+
+    private final ReflectionInvocation delegate;
+    private final Mailboxes mailboxes;
+    private final ErrorHandler errorHandler;
+
+    public
+    ReflectionMailboxInvocation(final ReflectionInvocation delegate, final Mailboxes mailboxes) {
+        this.delegate = delegate;
+        this.mailboxes = mailboxes;
+        this.errorHandler = mailboxes.getErrorHandler();
+    }
+
+    @Override
+    public
+    void invoke(final Object listener, final Method handler, final Object message) {
+        mailboxes.post(listener, new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    delegate.invoke(listener, handler, message);
+                } catch (Throwable e) {
+                    errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
+                                                                              .setCause(e)
+                                                                              .setPublishedObject(message));
+                }
+            }
+        });
+    }
+
+    @Override
+    public
+    void invoke(final Object listener, final Method handler, final Object message1, final Object message2) {
+        mailboxes.post(listener, new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    delegate.invoke(listener, handler, message1, message2);
+                } catch (Throwable e) {
+                    errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
+                                                                              .setCause(e)
+                                                                              .setPublishedObject(message1, message2));
+                }
+            }
+        });
+    }
+
+    @Override
+    public
+    void invoke(final Object listener, final Method handler, final Object message1, final Object message2, final Object message3) {
+        mailboxes.post(listener, new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    delegate.invoke(listener, handler, message1, message2, message3);
+                } catch (Throwable e) {
+                    errorHandler.handlePublicationError(new PublicationError().setMessage("Error during publication of message.")
+                                                                              .setCause(e)
+                                                                              .setPublishedObject(message1, message2, message3));
+                }
+            }
+        });
+    }
+}
@@ -42,6 +42,7 @@ import java.lang.reflect.Method;
 import dorkbox.messageBus.common.MessageHandler;
 import dorkbox.messageBus.error.ErrorHandler;
 import dorkbox.messageBus.subscription.Entry;
+import dorkbox.messageBus.subscription.Mailboxes;
 import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.publication.Publisher;
 
@@ -67,12 +68,16 @@ class SubscriptionReflectionStrong extends Subscription<Object> {
     private final ReflectionInvocation invocation;
 
     public
-    SubscriptionReflectionStrong(final Class<?> listenerClass, final MessageHandler handler) {
+    SubscriptionReflectionStrong(final Class<?> listenerClass, final MessageHandler handler, final Mailboxes mailboxes) {
         // we use "normal java" here
         super(listenerClass, handler);
 
         ReflectionInvocation invocation = new ReflectionReflectiveInvocation();
-        if (handler.isSynchronized()) {
+        if (handler.isMailbox()) {
+            // the mailbox already guarantees that only one handler of the listener is invoked at a time
+            invocation = new ReflectionMailboxInvocation(invocation, mailboxes);
+        }
+        else if (handler.isSynchronized()) {
             invocation = new ReflectionSynchronizedInvocation(invocation);
         }
 
@@ -40,8 +40,11 @@ import org.junit.runners.Suite;
         SynchronizedHandlerTest.class,
         SubscriptionManagerTest.class,
         AsyncFIFOBusTest.class,
-        MultiTreeTest.class,
+        ClassTupleMapTest.class,
         MultiMessageTest.class,
+        AsyncBusTest.class,
+        OverflowPolicyTest.class,
+        ScheduledPublicationTest.class,
 })
 public class AllTests {
 }
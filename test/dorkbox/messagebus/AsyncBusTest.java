@@ -0,0 +1,653 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ */
+package dorkbox.messagebus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.AsyncPublicationMode;
+import dorkbox.messageBus.AsyncWaitStrategy;
+import dorkbox.messageBus.DispatchMode;
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.OverflowPolicy;
+import dorkbox.messageBus.ProducerType;
+import dorkbox.messageBus.SubscriptionMode;
+import dorkbox.messageBus.annotations.Delivery;
+import dorkbox.messageBus.annotations.Subscribe;
+import dorkbox.messageBus.publication.VirtualThreadPublisher;
+import dorkbox.messageBus.error.DeadMessage;
+import dorkbox.messageBus.error.IPublicationErrorHandler;
+import dorkbox.messageBus.error.PublicationError;
+import dorkbox.messagebus.common.MessageBusTest;
+
+/**
+ * Verifies that asynchronous publication delivers every message to every listener, for all of the async publication modes.
+ *
+ * @author dorkbox, llc
+ */
+@SuppressWarnings("Duplicates")
+public class AsyncBusTest extends MessageBusTest {
+
+    private static final int numberOfListeners = 500;
+    private static final int numberOfMessages = 1000;
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+    private static final AtomicInteger deadMessages = new AtomicInteger(0);
+
+    @Override
+    public void beforeTest() {
+        super.beforeTest();
+        received.set(0);
+        deadMessages.set(0);
+    }
+
+    @Test
+    public void testFanOutLmax() {
+        fanOut(AsyncPublicationMode.LmaxDisruptor);
+    }
+
+    @Test
+    public void testDeadMessageLmax() {
+        deadMessage(AsyncPublicationMode.LmaxDisruptor);
+    }
+
+    @Test
+    public void testFanOutConversant() {
+        fanOut(AsyncPublicationMode.ConversantDisruptor);
+    }
+
+    @Test
+    public void testDeadMessageConversant() {
+        deadMessage(AsyncPublicationMode.ConversantDisruptor);
+    }
+
+    @Test
+    public void testFanOutVirtualThreads() {
+        if (VirtualThreadPublisher.isSupported()) {
+            fanOut(AsyncPublicationMode.VirtualThreads);
+        }
+        else {
+            try {
+                fanOut(AsyncPublicationMode.VirtualThreads);
+                fail("Virtual threads are not supported by this JVM");
+            } catch (IllegalStateException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void testDeadMessageVirtualThreads() {
+        if (VirtualThreadPublisher.isSupported()) {
+            deadMessage(AsyncPublicationMode.VirtualThreads);
+        }
+    }
+
+    @Test
+    public void testSmallQueueCapacity() {
+        smallQueueCapacity(AsyncPublicationMode.LmaxDisruptor);
+    }
+
+    @Test
+    public void testSmallQueueCapacityConversant() {
+        smallQueueCapacity(AsyncPublicationMode.ConversantDisruptor);
+    }
+
+    @Test
+    public void testBatch() {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            received.set(0);
+            deadMessages.set(0);
+
+            // a small queue, so that the batch has to be split into multiple claims
+            MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, SubscriptionMode.StrongReferences, publicationMode, 2, 64);
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new Listener());
+
+            // mixed types, one of which is not handled
+            Object[] messages = new Object[numberOfMessages];
+            List<Object> list = new ArrayList<Object>(numberOfMessages);
+            for (int i = 0; i < numberOfMessages; i++) {
+                messages[i] = i % 10 == 0 ? "not handled" : Integer.valueOf(i);
+                list.add(messages[i]);
+            }
+
+            bus.publishAsyncBatch(messages);
+            bus.publishAsyncBatch(list);
+
+            waitFor(received, numberOfMessages * 2 * 2 * 9 / 10);
+            waitFor(deadMessages, numberOfMessages * 2 / 10);
+            assertEquals(numberOfMessages * 2 * 2 * 9 / 10, received.get());
+            assertEquals(numberOfMessages * 2 / 10, deadMessages.get());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testTracked() throws Exception {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            received.set(0);
+            deadMessages.set(0);
+
+            MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, SubscriptionMode.StrongReferences, publicationMode, 2);
+            bus.addErrorHandler(TestFailingHandler);
+
+            for (int i = 0; i < 100; i++) {
+                bus.subscribe(new Listener());
+            }
+
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[numberOfMessages + 1];
+            for (int i = 0; i < numberOfMessages; i++) {
+                futures[i] = bus.publishAsyncTracked(i);
+            }
+            futures[numberOfMessages] = bus.publishAsyncTracked("not handled");
+
+            // once the futures are complete, ALL of the listeners must have been notified (without waiting)
+            CompletableFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+            assertEquals(100 * numberOfMessages * 2, received.get());
+            assertEquals(100, deadMessages.get());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testTrackedHandOff() throws Exception {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            slowReceived.set(0);
+            slowRelease = new CountDownLatch(1);
+
+            MessageBus bus = MessageBus.builder()
+                                       .publicationMode(publicationMode)
+                                       .numberOfThreads(1)
+                                       .lane("slow", 1, 0, AsyncWaitStrategy.PhasedBackoff)
+                                       .build();
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new SlowListener());
+            bus.subscribe(new SlowMailboxListener());
+
+            CompletableFuture<Void> future = bus.publishAsyncTracked(1);
+
+            // the handlers were handed off to the lane and to the mailbox, where they are blocked
+            pause(100);
+            assertFalse(future.isDone());
+
+            slowRelease.countDown();
+            future.get(30, TimeUnit.SECONDS);
+            assertEquals(2, slowReceived.get());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testAwaitQuiescence() {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            received.set(0);
+
+            MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, SubscriptionMode.StrongReferences, publicationMode, 2);
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new Listener());
+
+            for (int i = 0; i < numberOfMessages; i++) {
+                bus.publishAsync(i);
+                bus.publishAsyncOrdered(i, i);
+            }
+
+            // no waiting (or polling) is necessary after this
+            assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+            assertEquals(numberOfMessages * 2 * 2, received.get());
+            assertFalse(bus.hasPendingMessages());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownHandlesQueuedMessages() {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            received.set(0);
+
+            MessageBus bus = MessageBus.builder()
+                                       .publicationMode(publicationMode)
+                                       .numberOfThreads(2)
+                                       .shutdownTimeout(30, TimeUnit.SECONDS)
+                                       .build();
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new Listener());
+
+            for (int i = 0; i < numberOfMessages; i++) {
+                bus.publishAsync(i);
+            }
+
+            bus.shutdown();
+            assertEquals(numberOfMessages * 2, received.get());
+        }
+    }
+
+    @Test
+    public void testLanes() throws InterruptedException {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            received.set(0);
+            slowReceived.set(0);
+            slowRelease = new CountDownLatch(1);
+
+            MessageBus bus = MessageBus.builder()
+                                       .publicationMode(publicationMode)
+                                       .numberOfThreads(1)
+                                       .lane("slow", 1, 0, AsyncWaitStrategy.PhasedBackoff)
+                                       .build();
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new Listener());
+            bus.subscribe(new SlowListener());
+
+            for (int i = 0; i < 10; i++) {
+                bus.publishAsync(i);
+            }
+
+            // the slow handler is blocked, but only its own lane is waiting on it
+            waitFor(received, 10 * 2);
+            assertEquals(10 * 2, received.get());
+            assertEquals(0, slowReceived.get());
+
+            slowRelease.countDown();
+            assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+            assertEquals(10, slowReceived.get());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testFullLane() throws InterruptedException {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads) {
+                // every message has its own thread, so a lane is never full
+                continue;
+            }
+            received.set(0);
+            slowReceived.set(0);
+            slowRelease = new CountDownLatch(1);
+
+            // the lane can only hold a few messages, and the rest are dropped when it is full
+            MessageBus bus = MessageBus.builder()
+                                       .publicationMode(publicationMode)
+                                       .numberOfThreads(1)
+                                       .overflowPolicy(OverflowPolicy.DropNewest)
+                                       .lane("slow", 1, 4, AsyncWaitStrategy.PhasedBackoff)
+                                       .build();
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new Listener());
+            bus.subscribe(new SlowListener());
+
+            for (int i = 0; i < 100; i++) {
+                bus.publishAsync(i);
+            }
+
+            // the worker for the bus finds the lane full, but it is never waiting on it
+            waitFor(received, 100 * 2);
+            assertEquals(100 * 2, received.get());
+            assertEquals(0, slowReceived.get());
+
+            slowRelease.countDown();
+            assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+            assertTrue(slowReceived.get() > 0);
+            assertTrue(slowReceived.get() < 100);
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testPriority() {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads) {
+                // every message has its own thread, so nothing is ever waiting to overtake
+                continue;
+            }
+            slowReceived.set(0);
+            priorityReceived.set(0);
+            slowRelease = new CountDownLatch(1);
+
+            MessageBus bus = MessageBus.builder()
+                                       .publicationMode(publicationMode)
+                                       .numberOfThreads(1)
+                                       .build();
+            bus.addErrorHandler(TestFailingHandler);
+            bus.subscribe(new PriorityListener());
+
+            // the only (normal) worker is blocked, and the rest of the messages are waiting behind it
+            for (int i = 0; i < 10; i++) {
+                bus.publishAsync(i);
+            }
+
+            bus.publishAsyncPriority("control");
+            waitFor(priorityReceived, 1);
+            assertEquals(1, priorityReceived.get());
+            assertEquals(0, slowReceived.get());
+
+            slowRelease.countDown();
+            assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+            assertEquals(10, slowReceived.get());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testReentrantPublish() {
+        received.set(0);
+
+        // the worker fills the (tiny) ring buffer by itself, and it is also the only thread that can empty it
+        MessageBus bus = MessageBus.builder()
+                                   .publicationMode(AsyncPublicationMode.LmaxDisruptor)
+                                   .numberOfThreads(1)
+                                   .queueCapacity(4)
+                                   .build();
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new ChainListener(bus));
+
+        bus.publishAsync(0L);
+
+        // the handlers keep publishing, so waiting for quiescence is not enough
+        final int expected = (1 << (ChainListener.depth + 1)) - 1;
+        waitFor(received, expected);
+        assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+        assertEquals(expected, received.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testUnknownLane() {
+        final List<String> errors = new ArrayList<String>();
+
+        MessageBus bus = MessageBus.builder()
+                                   .numberOfThreads(1)
+                                   .build();
+        bus.addErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public
+            void handleError(final PublicationError error) {
+                fail();
+            }
+
+            @Override
+            public
+            void handleError(final String error, final Class<?> listenerClass) {
+                errors.add(error);
+            }
+        });
+
+        slowReceived.set(0);
+        slowRelease = new CountDownLatch(0);
+
+        // the lane is not defined, so the default threads are used instead
+        bus.subscribe(new SlowListener());
+        assertEquals(1, errors.size());
+
+        bus.publishAsync(1);
+        assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+        assertEquals(1, slowReceived.get());
+
+        bus.shutdown();
+    }
+
+    private void smallQueueCapacity(final AsyncPublicationMode publicationMode) {
+        // the capacity is rounded up to a power of 2, and producers must wait (not fail) when the queue is full
+        MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, SubscriptionMode.StrongReferences, publicationMode, 1, 3);
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new Listener());
+
+        for (int i = 0; i < numberOfMessages; i++) {
+            bus.publishAsync(i);
+        }
+
+        waitFor(received, numberOfMessages * 2);
+        assertEquals(numberOfMessages * 2, received.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testWaitStrategies() {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            for (AsyncWaitStrategy waitStrategy : AsyncWaitStrategy.values()) {
+                received.set(0);
+
+                MessageBus bus = new MessageBus(DispatchMode.Exact, SubscriptionMode.StrongReferences, publicationMode, 2,
+                                                MessageBus.getDefaultQueueCapacity(2), waitStrategy);
+                bus.addErrorHandler(TestFailingHandler);
+                bus.subscribe(new Listener());
+
+                for (int i = 0; i < numberOfMessages; i++) {
+                    bus.publishAsync(i);
+                }
+
+                waitFor(received, numberOfMessages);
+                assertEquals(numberOfMessages, received.get());
+
+                bus.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testBuilder() {
+        MessageBus bus = MessageBus.builder()
+                                   .dispatchMode(DispatchMode.ExactWithSuperTypes)
+                                   .publicationMode(AsyncPublicationMode.LmaxDisruptor)
+                                   .numberOfThreads(2)
+                                   .queueCapacity(100)
+                                   .waitStrategy(AsyncWaitStrategy.Yielding)
+                                   .build();
+
+        // the capacity is always rounded up to a power of 2
+        assertEquals(128, bus.getConfig().getQueueCapacity());
+        assertEquals(2, bus.getConfig().getNumberOfThreads());
+
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new Listener());
+
+        for (int i = 0; i < numberOfMessages; i++) {
+            bus.publishAsync(i);
+        }
+
+        waitFor(received, numberOfMessages * 2);
+        assertEquals(numberOfMessages * 2, received.get());
+
+        // clones share the same configuration
+        assertTrue(bus.getConfig() == bus.cloneWithSharedExecutor().getConfig());
+
+        bus.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilderValidation() {
+        MessageBus.builder().numberOfThreads(0).buildConfig();
+    }
+
+    @Test
+    public void testSingleProducer() throws InterruptedException {
+        final MessageBus bus = MessageBus.builder()
+                                         .producerType(ProducerType.Single)
+                                         .numberOfThreads(2)
+                                         .build();
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new Listener());
+
+        for (int i = 0; i < numberOfMessages; i++) {
+            bus.publishAsync(i);
+        }
+
+        waitFor(received, numberOfMessages * 2);
+        assertEquals(numberOfMessages * 2, received.get());
+
+        boolean assertionsEnabled = false;
+        assert assertionsEnabled = true;
+
+        if (assertionsEnabled) {
+            // a different thread is not permitted to publish
+            final AtomicInteger failures = new AtomicInteger(0);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        bus.publishAsync(1);
+                    } catch (IllegalStateException e) {
+                        failures.getAndIncrement();
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+
+            assertEquals(1, failures.get());
+        }
+
+        bus.shutdown();
+    }
+
+    private void fanOut(final AsyncPublicationMode publicationMode) {
+        MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, SubscriptionMode.StrongReferences, publicationMode, 2);
+        bus.addErrorHandler(TestFailingHandler);
+
+        for (int i = 0; i < numberOfListeners; i++) {
+            bus.subscribe(new Listener());
+        }
+
+        for (int i = 0; i < numberOfMessages; i++) {
+            bus.publishAsync(i);
+        }
+
+        // Integer + Number (super type) handlers
+        waitFor(received, numberOfListeners * numberOfMessages * 2);
+        assertEquals(numberOfListeners * numberOfMessages * 2, received.get());
+        assertEquals(0, deadMessages.get());
+
+        bus.shutdown();
+    }
+
+    private void deadMessage(final AsyncPublicationMode publicationMode) {
+        MessageBus bus = new MessageBus(DispatchMode.ExactWithSuperTypes, SubscriptionMode.StrongReferences, publicationMode, 2);
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new Listener());
+
+        for (int i = 0; i < numberOfMessages; i++) {
+            bus.publishAsync("not handled");
+        }
+
+        waitFor(deadMessages, numberOfMessages);
+        assertEquals(numberOfMessages, deadMessages.get());
+        assertEquals(0, received.get());
+
+        bus.shutdown();
+    }
+
+    private void waitFor(final AtomicInteger counter, final int expected) {
+        final long timeOutAt = System.currentTimeMillis() + 30000;
+        while (counter.get() < expected && System.currentTimeMillis() < timeOutAt) {
+            pause(10);
+        }
+    }
+
+    private static final AtomicInteger slowReceived = new AtomicInteger(0);
+    private static volatile CountDownLatch slowRelease;
+
+    public static class SlowListener {
+        @Subscribe(lane = "slow")
+        public void handle(Integer message) throws InterruptedException {
+            slowRelease.await();
+            slowReceived.getAndIncrement();
+        }
+    }
+
+    @dorkbox.messageBus.annotations.Listener(delivery = Delivery.Mailbox)
+    public static class SlowMailboxListener {
+        @Subscribe
+        public void handle(Integer message) throws InterruptedException {
+            slowRelease.await();
+            slowReceived.getAndIncrement();
+        }
+    }
+
+    private static final AtomicInteger priorityReceived = new AtomicInteger(0);
+
+    public static class PriorityListener {
+        @Subscribe
+        public void handle(Integer message) throws InterruptedException {
+            slowRelease.await();
+            slowReceived.getAndIncrement();
+        }
+
+        @Subscribe
+        public void handle(String message) {
+            priorityReceived.getAndIncrement();
+        }
+    }
+
+    public static class ChainListener {
+        private static final int depth = 10;
+
+        private final MessageBus bus;
+
+        public ChainListener(MessageBus bus) {
+            this.bus = bus;
+        }
+
+        @Subscribe
+        public void handle(Long message) {
+            received.getAndIncrement();
+
+            if (message < depth) {
+                bus.publishAsync(message + 1);
+                bus.publishAsync(message + 1);
+            }
+        }
+    }
+
+    public static class Listener {
+        @Subscribe
+        public void handle(Integer message) {
+            received.getAndIncrement();
+        }
+
+        @Subscribe
+        public void handleSuper(Number message) {
+            received.getAndIncrement();
+        }
+
+        @Subscribe
+        public void handleDead(DeadMessage message) {
+            deadMessages.getAndIncrement();
+        }
+    }
+}
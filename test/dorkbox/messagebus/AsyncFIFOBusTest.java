@@ -24,15 +24,20 @@ package dorkbox.messagebus;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import dorkbox.messageBus.AsyncPublicationMode;
 import dorkbox.messageBus.MessageBus;
 import dorkbox.messageBus.annotations.Subscribe;
+import dorkbox.messageBus.publication.VirtualThreadPublisher;
 import dorkbox.messagebus.common.MessageBusTest;
 
 /**
- * NOTE: the async publication is truly async. There is no guaranteed order to when it's handled.
+ * NOTE: the async publication is truly async. There is no guaranteed order to when it's handled, unless it is published with a key
+ * (in which case the order is guaranteed for each key).
  *
  * @author bennidi
  *         Date: 3/30/14
@@ -74,6 +79,68 @@ public class AsyncFIFOBusTest extends MessageBusTest {
         fifoBus.shutdown();
     }
 
+    @Test
+    public void testOrderedAsyncFIFO() {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+            MessageBus fifoBus = MessageBus.builder()
+                                           .publicationMode(publicationMode)
+                                           .numberOfThreads(4)
+                                           .build();
+            fifoBus.addErrorHandler(TestFailingHandler);
+
+            OrderedListener listener = new OrderedListener();
+            fifoBus.subscribe(listener);
+
+            // interleave the messages for all of the keys
+            final int numberOfKeys = 16;
+            final int numberOfMessages = 1000;
+            for (int i = 0; i < numberOfMessages; i++) {
+                for (int key = 0; key < numberOfKeys; key++) {
+                    fifoBus.publishAsyncOrdered(key, new KeyedMessage(key, i));
+                }
+            }
+
+            final long timeOutAt = System.currentTimeMillis() + 30000;
+            while (listener.received.get() < numberOfKeys * numberOfMessages && System.currentTimeMillis() < timeOutAt) {
+                pause(10);
+            }
+
+            assertEquals(numberOfKeys * numberOfMessages, listener.received.get());
+            assertEquals(0, listener.outOfOrder.get());
+
+            fifoBus.shutdown();
+        }
+    }
+
+    public static class KeyedMessage {
+        private final int key;
+        private final int sequence;
+
+        public KeyedMessage(int key, int sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+
+    public static class OrderedListener {
+        private final ConcurrentHashMap<Integer, Integer> lastSequence = new ConcurrentHashMap<Integer, Integer>();
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicInteger outOfOrder = new AtomicInteger();
+
+        @Subscribe
+        public void handle(KeyedMessage message) {
+            // messages for the same key are always handled by the same thread
+            Integer last = lastSequence.put(message.key, message.sequence);
+            if (last != null && last + 1 != message.sequence) {
+                outOfOrder.getAndIncrement();
+            }
+            received.getAndIncrement();
+        }
+    }
+
     public static class Listener {
 
         private List<Integer> receivedSync = new LinkedList<Integer>();
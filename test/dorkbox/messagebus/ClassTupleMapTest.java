@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.messagebus;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.common.ClassTupleMap;
+import dorkbox.messageBus.common.MultiClass;
+import dorkbox.messagebus.common.AssertSupport;
+import dorkbox.messagebus.common.ConcurrentExecutor;
+
+public class ClassTupleMapTest extends AssertSupport {
+
+    private static final Class<?>[] classes = new Class<?>[] {Object.class, String.class, Integer.class, Long.class, Double.class,
+                                                              Float.class, Short.class, Byte.class, Character.class, Boolean.class};
+
+    @Test
+    public void testTuples() {
+        ClassTupleMap map = new ClassTupleMap();
+
+        final MultiClass a = map.get(String.class, Object.class);
+        final MultiClass b = map.get(Object.class, String.class);
+        final MultiClass c = map.get(String.class, Object.class, Object.class);
+
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNotNull(c);
+
+        // the order and the number of classes matters
+        assertFalse(a == b);
+        assertFalse(a == c);
+
+        assertTrue(a == map.get(String.class, Object.class));
+        assertTrue(c == map.get(String.class, Object.class, Object.class));
+    }
+
+    @Test
+    public void testConcurrentGrowth() {
+        final ClassTupleMap map = new ClassTupleMap();
+
+        // every thread adds all of the tuples at the same time, so the table is copied (and grows) while it is read
+        ConcurrentExecutor.runConcurrent(new Runnable() {
+            @Override
+            public void run() {
+                for (Class<?> class1 : classes) {
+                    for (Class<?> class2 : classes) {
+                        map.get(class1, class2);
+                        for (Class<?> class3 : classes) {
+                            map.get(class1, class2, class3);
+                        }
+                    }
+                }
+            }
+        }, 8);
+
+        // nothing was lost, and every tuple has a different value
+        final MultiClass[] values = new MultiClass[classes.length * classes.length];
+        int index = 0;
+        for (Class<?> class1 : classes) {
+            for (Class<?> class2 : classes) {
+                values[index++] = map.get(class1, class2);
+            }
+        }
+
+        index = 0;
+        for (Class<?> class1 : classes) {
+            for (Class<?> class2 : classes) {
+                final MultiClass value = map.get(class1, class2);
+                assertTrue(value == values[index]);
+
+                for (int i = 0; i < index; i++) {
+                    assertFalse(value == values[i]);
+                }
+                index++;
+            }
+        }
+    }
+}
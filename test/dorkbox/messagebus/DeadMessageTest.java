@@ -128,6 +128,22 @@ public class DeadMessageTest extends MessageBusTest {
         assertEquals(InstancesPerListener, deadMessages.get());
     }
 
+    @Test
+    public void testDeadMessageHandlerSubscribedLater() {
+        final MessageBus bus = createBus();
+
+        // there is nothing to receive the dead message yet
+        bus.publish(new Object());
+        bus.publish(new Object(), "two");
+        assertEquals(0, deadMessages.get());
+
+        // the (cached) subscriptions for the message must include the new dead message handler
+        bus.subscribe(new DeadMessagHandler());
+        bus.publish(new Object());
+        bus.publish(new Object(), "two");
+        assertEquals(2, deadMessages.get());
+    }
+
     public static class DeadMessagHandler {
         @Subscribe
         public void handle(DeadMessage message){
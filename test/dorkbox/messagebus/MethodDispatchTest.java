@@ -22,9 +22,20 @@
  */
 package dorkbox.messagebus;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
 import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.TypedPublisher;
 import dorkbox.messageBus.annotations.Subscribe;
 import dorkbox.messagebus.common.MessageBusTest;
 
@@ -39,6 +50,8 @@ public class MethodDispatchTest extends MessageBusTest {
    private boolean listener1Called = false;
    private boolean listener2Called = false;
 
+   private final List<String> calls = new ArrayList<String>();
+
 
 
     // a simple event listener
@@ -76,4 +89,151 @@ public class MethodDispatchTest extends MessageBusTest {
         bus.publish("jfndf");
         assertTrue(this.listener1Called);
     }
+
+    public class LowPriorityListener {
+        @Subscribe(priority = -1)
+        public void handleString(String s) {
+            calls.add("low");
+        }
+    }
+
+    public class PriorityListener {
+        @Subscribe
+        public void handleString(String s) {
+            calls.add("default");
+        }
+
+        @Subscribe(priority = 10)
+        public void handleStringFirst(String s) {
+            calls.add("high");
+        }
+
+        @Subscribe(priority = 5)
+        public void handleObject(Object o) {
+            calls.add("super");
+        }
+    }
+
+    @Test
+    public void testPriority() {
+        MessageBus bus = createBus();
+
+        // subscribed before the higher priority handlers
+        bus.subscribe(new LowPriorityListener());
+        bus.subscribe(new PriorityListener());
+
+        bus.publish("priority");
+
+        // exact types are first (by priority), then super types
+        assertEquals(Arrays.asList("high", "default", "low", "super"), calls);
+
+        bus.shutdown();
+    }
+
+    public static class Event {
+    }
+
+    public static class SubEvent extends Event {
+    }
+
+    public class TypedListener {
+        @Subscribe
+        public void handleEvent(Event event) {
+            calls.add("event");
+        }
+
+        @Subscribe
+        public void handleObject(Object o) {
+            calls.add("super");
+        }
+    }
+
+    public class SubEventListener {
+        @Subscribe
+        public void handleSubEvent(SubEvent event) {
+            calls.add("subEvent");
+        }
+    }
+
+    @Test
+    public void testTypedPublisher() {
+        MessageBus bus = createBus();
+        TypedPublisher<Event> publisher = bus.publisherFor(Event.class);
+
+        // nothing is subscribed yet
+        publisher.publish(new Event());
+        assertTrue(calls.isEmpty());
+
+        TypedListener listener = new TypedListener();
+        bus.subscribe(listener);
+        publisher.publish(new Event());
+        assertEquals(Arrays.asList("event", "super"), calls);
+
+        // subclasses have different subscriptions
+        calls.clear();
+        bus.subscribe(new SubEventListener());
+        publisher.publish(new SubEvent());
+        // the exact subscriptions are first, but the super type subscriptions are not in any particular order
+        assertEquals(3, calls.size());
+        assertEquals("subEvent", calls.get(0));
+        assertEquals(new HashSet<String>(Arrays.asList("event", "super")), new HashSet<String>(calls.subList(1, 3)));
+
+        // the listeners are removed from the (cached) subscriptions
+        calls.clear();
+        bus.unsubscribe(listener);
+        publisher.publish(new Event());
+        publisher.publish(new SubEvent());
+        assertEquals(Arrays.asList("subEvent"), calls);
+
+        bus.shutdown();
+    }
+
+    public class ParallelListener {
+        private final CountDownLatch running;
+        private final AtomicInteger finished;
+        private final Set<Thread> threads;
+
+        public ParallelListener(CountDownLatch running, AtomicInteger finished, Set<Thread> threads) {
+            this.running = running;
+            this.finished = finished;
+            this.threads = threads;
+        }
+
+        @Subscribe
+        public void handleString(String s) throws InterruptedException {
+            threads.add(Thread.currentThread());
+
+            // the handlers only finish once they are all running at the same time
+            running.countDown();
+            running.await(10, TimeUnit.SECONDS);
+
+            finished.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testParallel() {
+        MessageBus bus = MessageBus.builder()
+                                   .parallelism(4)
+                                   .build();
+        bus.addErrorHandler(TestFailingHandler);
+
+        CountDownLatch running = new CountDownLatch(4);
+        AtomicInteger finished = new AtomicInteger();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        for (int i = 0; i < 4; i++) {
+            bus.subscribe(new ParallelListener(running, finished, threads));
+        }
+
+        bus.publishParallel("parallel");
+
+        // every handler is finished when the call returns, and they were all running at the same time
+        assertEquals(4, finished.get());
+        assertEquals(0L, running.getCount());
+        assertEquals(4, threads.size());
+        assertFalse(threads.contains(Thread.currentThread()));
+
+        bus.shutdown();
+    }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ */
+package dorkbox.messagebus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.AsyncPublicationMode;
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.OverflowPolicy;
+import dorkbox.messageBus.annotations.Subscribe;
+import dorkbox.messageBus.publication.VirtualThreadPublisher;
+import dorkbox.messagebus.common.MessageBusTest;
+
+/**
+ * Verifies what happens to async publications when the async queue is full.
+ * <p>
+ * Every bus has a queue capacity of 2, and messages block the worker threads until they are released. After the first message, that
+ * leaves space for exactly ONE more message.
+ *
+ * @author dorkbox, llc
+ */
+@SuppressWarnings("Duplicates")
+public class OverflowPolicyTest extends MessageBusTest {
+
+    @Test
+    public void testTryPublishAsync() throws InterruptedException {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+
+            BlockingListener listener = new BlockingListener();
+            MessageBus bus = createFullBus(publicationMode, OverflowPolicy.Block, listener);
+
+            assertEquals(1L, bus.pendingCount());
+            assertEquals(1L, bus.remainingCapacity());
+
+            assertTrue(bus.tryPublishAsync("1"));
+            assertEquals(2L, bus.pendingCount());
+            assertEquals(0L, bus.remainingCapacity());
+
+            assertFalse(bus.tryPublishAsync("2"));
+            assertFalse(bus.tryPublishAsync("2", 10, TimeUnit.MILLISECONDS));
+
+            listener.release.countDown();
+            assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+            assertEquals(set("block", "1"), listener.received());
+            assertEquals(0L, bus.pendingCount());
+            assertEquals(2L, bus.remainingCapacity());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+
+            BlockingListener listener = new BlockingListener();
+            MessageBus bus = createFullBus(publicationMode, OverflowPolicy.DropNewest, listener);
+
+            CompletableFuture<Void> queued = bus.publishAsyncTracked("1");
+            CompletableFuture<Void> dropped = bus.publishAsyncTracked("2"); // the queue is full, this returns immediately
+            assertTrue(dropped.isCancelled());
+
+            listener.release.countDown();
+            queued.get(30, TimeUnit.SECONDS);
+            waitFor(listener, 2);
+            pause(50);
+            assertEquals(set("block", "1"), listener.received());
+
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        BlockingListener listener = new BlockingListener();
+        MessageBus bus = createFullBus(AsyncPublicationMode.ConversantDisruptor, OverflowPolicy.DropOldest, listener);
+
+        bus.publishAsync("1");
+        bus.publishAsync("2"); // the queue is full, so "1" is dropped
+
+        listener.release.countDown();
+        waitFor(listener, 2);
+        pause(50);
+        assertEquals(set("block", "2"), listener.received());
+
+        bus.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDropOldestNotSupported() {
+        MessageBus.builder()
+                  .publicationMode(AsyncPublicationMode.LmaxDisruptor)
+                  .overflowPolicy(OverflowPolicy.DropOldest)
+                  .buildConfig();
+    }
+
+    @Test
+    public void testCallerRuns() throws InterruptedException {
+        for (AsyncPublicationMode publicationMode : AsyncPublicationMode.values()) {
+            if (publicationMode == AsyncPublicationMode.VirtualThreads && !VirtualThreadPublisher.isSupported()) {
+                continue;
+            }
+
+            BlockingListener listener = new BlockingListener();
+            MessageBus bus = createFullBus(publicationMode, OverflowPolicy.CallerRuns, listener);
+
+            bus.publishAsync("1");
+            bus.publishAsync("2"); // the queue is full, so this is handled by this thread
+
+            assertEquals(Collections.singletonList("2"), listener.receivedByCaller);
+
+            listener.release.countDown();
+            waitFor(listener, 3);
+            assertEquals(set("block", "1", "2"), listener.received());
+
+            bus.shutdown();
+        }
+    }
+
+    private MessageBus createFullBus(final AsyncPublicationMode publicationMode, final OverflowPolicy overflowPolicy,
+                                     final BlockingListener listener) throws InterruptedException {
+        MessageBus bus = MessageBus.builder()
+                                   .publicationMode(publicationMode)
+                                   .overflowPolicy(overflowPolicy)
+                                   .numberOfThreads(1)
+                                   .queueCapacity(2)
+                                   .build();
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(listener);
+
+        listener.caller = Thread.currentThread();
+        bus.publishAsync("block");
+        assertTrue(listener.started.await(30, TimeUnit.SECONDS));
+        return bus;
+    }
+
+    private void waitFor(final BlockingListener listener, final int expected) {
+        final long timeOutAt = System.currentTimeMillis() + 30000;
+        while (listener.received.size() < expected && System.currentTimeMillis() < timeOutAt) {
+            pause(10);
+        }
+    }
+
+    private static Set<String> set(String... messages) {
+        return new HashSet<String>(Arrays.asList(messages));
+    }
+
+    public static class BlockingListener {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile Thread caller;
+
+        private final List<String> received = new CopyOnWriteArrayList<String>();
+        private final List<String> receivedByCaller = new CopyOnWriteArrayList<String>();
+
+        @Subscribe
+        public void handle(String message) throws InterruptedException {
+            if (Thread.currentThread() == caller) {
+                receivedByCaller.add(message);
+            }
+            else {
+                started.countDown();
+                release.await();
+            }
+            received.add(message);
+        }
+
+        public Set<String> received() {
+            return new HashSet<String>(received);
+        }
+    }
+}
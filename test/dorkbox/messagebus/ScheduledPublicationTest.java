@@ -0,0 +1,262 @@
+/*
+ * Copyright 2026 dorkbox, llc
+ */
+package dorkbox.messagebus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import dorkbox.messageBus.AsyncPublicationMode;
+import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.OverflowPolicy;
+import dorkbox.messageBus.ProducerType;
+import dorkbox.messageBus.ScheduledPublication;
+import dorkbox.messageBus.annotations.Subscribe;
+import dorkbox.messagebus.common.MessageBusTest;
+
+/**
+ * Verifies delayed and periodic publication, which use the hashed timing wheel of the bus.
+ *
+ * @author dorkbox, llc
+ */
+public class ScheduledPublicationTest extends MessageBusTest {
+
+    private static final AtomicInteger received = new AtomicInteger(0);
+
+    @Override
+    public void beforeTest() {
+        super.beforeTest();
+        received.set(0);
+    }
+
+    @Test
+    public void testPublishDelayed() {
+        MessageBus bus = createTimerBus();
+
+        final long start = System.nanoTime();
+        ScheduledPublication publication = bus.publishDelayed(1, 100, TimeUnit.MILLISECONDS);
+        assertFalse(publication.isDone());
+
+        waitFor(1);
+        assertEquals(1, received.get());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(publication.isDone());
+        assertFalse(publication.isCancelled());
+
+        // it was already published
+        assertFalse(publication.cancel());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testCancel() {
+        MessageBus bus = createTimerBus();
+
+        ScheduledPublication publication = bus.publishDelayed(1, 100, TimeUnit.MILLISECONDS);
+        assertTrue(publication.cancel());
+        assertFalse(publication.cancel());
+        assertTrue(publication.isCancelled());
+
+        pause(300);
+        assertEquals(0, received.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testManyDelays() {
+        MessageBus bus = createTimerBus();
+
+        // some of these need more than one rotation of the wheel (512 ticks)
+        final int count = 100000;
+        for (int i = 0; i < count; i++) {
+            bus.publishDelayed(i, i % 1200, TimeUnit.MILLISECONDS);
+        }
+
+        waitFor(count);
+        assertEquals(count, received.get());
+        assertTrue(bus.awaitQuiescence(30, TimeUnit.SECONDS));
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testPublishAtFixedRate() {
+        MessageBus bus = createTimerBus();
+
+        final AtomicInteger counter = new AtomicInteger(0);
+        ScheduledPublication publication = bus.publishAtFixedRate(new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                // nothing is published for null
+                int count = counter.getAndIncrement();
+                return count % 2 == 0 ? count : null;
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        waitFor(5);
+        assertTrue(publication.cancel());
+        assertTrue(publication.isDone());
+
+        pause(100);
+        final int count = received.get();
+        pause(100);
+        assertEquals(count, received.get());
+        assertEquals((counter.get() + 1) / 2, count);
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testFullRotationPeriod() {
+        MessageBus bus = createTimerBus();
+
+        // the period is exactly one rotation of the wheel (512 ticks), so the task is due again in the bucket that it just ran from
+        final long start = System.nanoTime();
+        final AtomicLong secondRun = new AtomicLong(0L);
+        final AtomicInteger runs = new AtomicInteger(0);
+        ScheduledPublication publication = bus.publishAtFixedRate(new Supplier<Integer>() {
+            @Override
+            public Integer get() {
+                if (runs.incrementAndGet() == 2) {
+                    secondRun.set(System.nanoTime() - start);
+                }
+                return null;
+            }
+        }, 512, TimeUnit.MILLISECONDS);
+
+        final long timeOutAt = System.currentTimeMillis() + 30000;
+        while (runs.get() < 2 && System.currentTimeMillis() < timeOutAt) {
+            pause(10);
+        }
+        assertTrue(publication.cancel());
+
+        // not a full rotation late (1536 ms)
+        assertTrue(secondRun.get() >= TimeUnit.MILLISECONDS.toNanos(1024));
+        assertTrue(secondRun.get() < TimeUnit.MILLISECONDS.toNanos(1400));
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testShutdownCancels() {
+        MessageBus bus = createTimerBus();
+
+        ScheduledPublication publication = bus.publishDelayed(1, 10, TimeUnit.SECONDS);
+        bus.shutdown();
+
+        assertTrue(publication.isCancelled());
+        assertEquals(0, received.get());
+    }
+
+    @Test
+    public void testFullQueueDoesNotBlockTimer() {
+        blockedReceived.set(0);
+        blockedRelease = new CountDownLatch(1);
+
+        MessageBus bus = MessageBus.builder()
+                                   .numberOfThreads(1)
+                                   .queueCapacity(4)
+                                   .overflowPolicy(OverflowPolicy.Block)
+                                   .timerTick(1, TimeUnit.MILLISECONDS)
+                                   .build();
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new BlockedListener());
+
+        // the only worker is blocked, so most of these do not fit in the queue
+        final int count = 20;
+        final ScheduledPublication[] publications = new ScheduledPublication[count];
+        for (int i = 0; i < count; i++) {
+            publications[i] = bus.publishDelayed("blocked", 10, TimeUnit.MILLISECONDS);
+        }
+
+        // the timer thread is not waiting for space in the queue, so it still runs the other scheduled publications
+        final AtomicInteger ticks = new AtomicInteger(0);
+        ScheduledPublication periodic = bus.publishAtFixedRate(new Supplier<String>() {
+            @Override
+            public String get() {
+                ticks.getAndIncrement();
+                return null;
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        final long timeOutAt = System.currentTimeMillis() + 30000;
+        while (ticks.get() < 10 && System.currentTimeMillis() < timeOutAt) {
+            pause(10);
+        }
+        assertTrue(ticks.get() >= 10);
+        assertTrue(periodic.cancel());
+
+        // the messages that did not fit are retried, and can still be cancelled
+        assertFalse(publications[count - 1].isDone());
+        assertTrue(publications[count - 1].cancel());
+
+        blockedRelease.countDown();
+        while (blockedReceived.get() < count - 1 && System.currentTimeMillis() < timeOutAt) {
+            pause(10);
+        }
+        pause(100);
+        assertEquals(count - 1, blockedReceived.get());
+        for (int i = 0; i < count - 1; i++) {
+            assertTrue(publications[i].isDone());
+            assertFalse(publications[i].isCancelled());
+        }
+
+        bus.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSingleProducer() {
+        MessageBus bus = MessageBus.builder()
+                                   .publicationMode(AsyncPublicationMode.LmaxDisruptor)
+                                   .producerType(ProducerType.Single)
+                                   .build();
+        try {
+            // the timer thread would be a second producer
+            bus.publishDelayed(1, 100, TimeUnit.MILLISECONDS);
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    private MessageBus createTimerBus() {
+        MessageBus bus = MessageBus.builder()
+                                   .numberOfThreads(2)
+                                   .timerTick(1, TimeUnit.MILLISECONDS)
+                                   .build();
+        bus.addErrorHandler(TestFailingHandler);
+        bus.subscribe(new Listener());
+        return bus;
+    }
+
+    private void waitFor(final int expected) {
+        final long timeOutAt = System.currentTimeMillis() + 30000;
+        while (received.get() < expected && System.currentTimeMillis() < timeOutAt) {
+            pause(10);
+        }
+    }
+
+    public static class Listener {
+        @Subscribe
+        public void handle(Integer message) {
+            received.getAndIncrement();
+        }
+    }
+
+    private static final AtomicInteger blockedReceived = new AtomicInteger(0);
+    private static volatile CountDownLatch blockedRelease;
+
+    public static class BlockedListener {
+        @Subscribe
+        public void handle(String message) throws InterruptedException {
+            blockedRelease.await();
+            blockedReceived.getAndIncrement();
+        }
+    }
+}
@@ -25,6 +25,9 @@ package dorkbox.messagebus;
 import org.junit.Test;
 
 import dorkbox.messageBus.SubscriptionMode;
+import dorkbox.messageBus.annotations.Subscribe;
+import dorkbox.messageBus.subscription.DispatchPlan;
+import dorkbox.messageBus.subscription.Subscription;
 import dorkbox.messageBus.subscription.SubscriptionManager;
 import dorkbox.messagebus.messages.IMessage;
 import dorkbox.messagebus.common.AssertSupport;
@@ -41,11 +44,13 @@ import dorkbox.messagebus.listeners.MultipartMessageListener;
 import dorkbox.messagebus.listeners.Overloading;
 import dorkbox.messagebus.listeners.StandardMessageListener;
 import dorkbox.messagebus.messages.AbstractMessage;
+import dorkbox.messagebus.messages.CountableMessage;
 import dorkbox.messagebus.messages.ICountable;
 import dorkbox.messagebus.messages.IMultipartMessage;
 import dorkbox.messagebus.messages.MessageTypes;
 import dorkbox.messagebus.messages.MultipartMessage;
 import dorkbox.messagebus.messages.StandardMessage;
+import dorkbox.messagebus.messages.SubTestMessage;
 
 /**
  * Test the subscriptions as generated and organized by the subscription manager. Tests use different sets of listeners
@@ -254,6 +259,105 @@ public class SubscriptionManagerTest extends AssertSupport {
         return factory;
     }
 
+    @Test
+    public
+    void testConcurrentColdStart() {
+        final Object[] listeners = new Object[] {new IMessageListener.DefaultListener(),
+                                                 new IMessageListener.NoSubtypesListener(),
+                                                 new AbstractMessageListener.DefaultListener(),
+                                                 new ICountableListener.DefaultListener(),
+                                                 new MessageTypesListener.DefaultListener()};
+
+        final Class<?>[] messageTypes = new Class<?>[] {StandardMessage.class,
+                                                        MultipartMessage.class,
+                                                        MessageTypes.class,
+                                                        CountableMessage.class,
+                                                        SubTestMessage.class,
+                                                        Object.class};
+
+        final SubscriptionManager expected = new SubscriptionManager(SubscriptionMode.StrongReferences);
+        final SubscriptionManager subscriptionManager = new SubscriptionManager(SubscriptionMode.StrongReferences);
+        for (Object listener : listeners) {
+            expected.subscribe(listener);
+            subscriptionManager.subscribe(listener);
+        }
+
+        // nothing is cached yet, so all of the threads calculate the same (and different) types at the same time
+        ConcurrentExecutor.runConcurrent(new Runnable() {
+            @Override
+            public
+            void run() {
+                for (int i = 0; i < messageTypes.length; i++) {
+                    subscriptionManager.getPlan(messageTypes[i]);
+                }
+            }
+        }, 16);
+
+        for (Class<?> messageType : messageTypes) {
+            // every type is cached, and nothing was lost
+            DispatchPlan plan = subscriptionManager.getPlan(messageType);
+            assertTrue(plan == subscriptionManager.getPlan(messageType));
+            assertTrue(subscriptionManager.getSuperSubs(messageType) == subscriptionManager.getSuperSubs(messageType));
+
+            // the same as calculated by a single thread
+            DispatchPlan expectedPlan = expected.getPlan(messageType);
+            assertEquals(expectedPlan.isDead(), plan.isDead());
+            assertEquals(expectedPlan.getSubscriptions().length, plan.getSubscriptions().length);
+            for (int i = 0; i < plan.getSubscriptions().length; i++) {
+                assertEquals(expectedPlan.getSubscriptions()[i].getHandler().getMethod(),
+                             plan.getSubscriptions()[i].getHandler().getMethod());
+            }
+        }
+    }
+
+    @Test
+    public
+    void testNewListenerOnlyReplacesAffectedTypes() {
+        final SubscriptionManager subscriptionManager = new SubscriptionManager(SubscriptionMode.StrongReferences);
+        subscriptionManager.subscribe(new IMessageListener.DefaultListener());
+
+        final DispatchPlan standardPlan = subscriptionManager.getPlan(StandardMessage.class);
+        final DispatchPlan enumPlan = subscriptionManager.getPlan(MessageTypes.class);
+        final Subscription[] enumSuperSubs = subscriptionManager.getSuperSubs(MessageTypes.class);
+        final DispatchPlan deadPlan = subscriptionManager.getPlan(String.class);
+        assertTrue(deadPlan.isDead());
+
+        subscriptionManager.subscribe(new StandardMessageListener.DefaultListener());
+
+        // a StandardMessageListener can never receive these, so they are kept
+        assertTrue(enumPlan == subscriptionManager.getPlan(MessageTypes.class));
+        assertTrue(enumSuperSubs == subscriptionManager.getSuperSubs(MessageTypes.class));
+        assertTrue(deadPlan == subscriptionManager.getPlan(String.class));
+
+        // already replaced while subscribing
+        final DispatchPlan newStandardPlan = subscriptionManager.getPlan(StandardMessage.class);
+        assertFalse(standardPlan == newStandardPlan);
+        assertEquals(standardPlan.getSubscriptions().length + 1, newStandardPlan.getSubscriptions().length);
+
+        // dead plans hold the dead message subscriptions, so all of them are affected by a new dead message handler
+        subscriptionManager.subscribe(new DeadMessageTest.DeadMessagHandler());
+        assertTrue(enumPlan == subscriptionManager.getPlan(MessageTypes.class));
+        assertEquals(1, subscriptionManager.getPlan(String.class).getSubscriptions().length);
+    }
+
+    @Test
+    public
+    void testMultipleParameterSuperSubs() {
+        final SubscriptionManager subscriptionManager = new SubscriptionManager(SubscriptionMode.StrongReferences);
+        subscriptionManager.subscribe(new MultipleParameterListener());
+
+        // (IMessage, Object) and (AbstractMessage, CharSequence) accept subtypes, (IMessage, String) does not
+        assertEquals(2, subscriptionManager.getSuperSubs(StandardMessage.class, String.class).length);
+        assertEquals(1, subscriptionManager.getSuperSubs(StandardMessage.class, Integer.class).length);
+        assertEquals(0, subscriptionManager.getSuperSubs(String.class, String.class).length);
+
+        // the exact signature is not a super subscription
+        assertEquals(1, subscriptionManager.getSuperSubs(IMessage.class, String.class).length);
+
+        assertEquals(1, subscriptionManager.getSuperSubs(MultipartMessage.class, String.class, Integer.class).length);
+        assertEquals(0, subscriptionManager.getSuperSubs(MultipartMessage.class, Integer.class, String.class).length);
+    }
+
     private void runTestWith(final ListenerFactory listeners, final SubscriptionValidator validator) {
         final SubscriptionManager subscriptionManager = new SubscriptionManager(SubscriptionMode.StrongReferences);
 
@@ -267,5 +371,18 @@ public class SubscriptionManagerTest extends AssertSupport {
 
         validator.validate(subscriptionManager);
     }
-}
 
+    public static class MultipleParameterListener {
+        @Subscribe
+        public void handle(IMessage message, Object object) {}
+
+        @Subscribe
+        public void handle(AbstractMessage message, CharSequence chars) {}
+
+        @Subscribe(acceptSubtypes = false)
+        public void handleExact(IMessage message, String string) {}
+
+        @Subscribe
+        public void handle(ICountable countable, String string, Object object) {}
+    }
+}
@@ -22,12 +22,20 @@
  */
 package dorkbox.messagebus;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import dorkbox.messageBus.MessageBus;
+import dorkbox.messageBus.annotations.Delivery;
+import dorkbox.messageBus.annotations.Listener;
 import dorkbox.messageBus.annotations.Subscribe;
 import dorkbox.messageBus.annotations.Synchronized;
 import dorkbox.messagebus.common.MessageBusTest;
@@ -70,6 +78,71 @@ public class SynchronizedHandlerTest extends MessageBusTest {
         Assert.assertEquals(totalCount, counter.get());
     }
 
+    @Test
+    public void testMailboxDelivery() {
+        counter.set(0);
+        overlapped.set(false);
+
+        MessageBus bus = MessageBus.builder()
+                                   .numberOfThreads(4)
+                                   .mailboxCapacity(16)
+                                   .build();
+
+        int listeners = 10;
+        for (int i = 0; i < listeners; i++) {
+            bus.subscribe(new MailboxDelivery());
+        }
+
+        // both handlers of every listener, from the async workers AND from the calling thread
+        for (int i = 0; i < numberOfMessages; i++) {
+            bus.publishAsync(new Object());
+            bus.publish("message");
+        }
+
+        Assert.assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0L, bus.pendingCount());
+
+        // each message is delivered to both handlers, because String is also an Object
+        Assert.assertEquals(listeners * numberOfMessages * 3, counter.get());
+        Assert.assertFalse("Handlers of the same listener ran concurrently", overlapped.get());
+
+        bus.shutdown();
+    }
+
+    @Test
+    public void testMailboxOrderWhenFull() throws InterruptedException {
+        MessageBus bus = MessageBus.builder()
+                                   .numberOfThreads(4)
+                                   .mailboxCapacity(16)
+                                   .build();
+
+        RepublishingMailbox listener = new RepublishingMailbox(bus);
+        bus.subscribe(listener);
+
+        // the first message blocks the mailbox until the others are queued behind it
+        bus.publish(0);
+        for (int i = 1; i <= 4; i++) {
+            bus.publish(i);
+        }
+        listener.queued.countDown();
+
+        // everything posted before awaitQuiescence() is waited for
+        Assert.assertTrue(listener.republished.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(bus.awaitQuiescence(10, TimeUnit.SECONDS));
+
+        // the handler posted more messages to its own mailbox than there is room for, and they still come after the older ones
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i <= 4; i++) {
+            expected.add(i);
+        }
+        for (int i = 0; i < RepublishingMailbox.REPUBLISHED; i++) {
+            expected.add(100 + i);
+        }
+        Assert.assertEquals(expected, listener.received);
+
+        bus.shutdown();
+    }
+
     public static class SynchronizedWithSynchronousDelivery {
         @Subscribe
         @Synchronized
@@ -77,4 +150,60 @@ public class SynchronizedHandlerTest extends MessageBusTest {
             counter.getAndIncrement();
         }
     }
+
+    private static AtomicBoolean overlapped = new AtomicBoolean(false);
+
+    @Listener(delivery = Delivery.Mailbox)
+    public static class MailboxDelivery {
+        // not synchronized, the mailbox makes sure that only one thread at a time is in here
+        private int running = 0;
+
+        @Subscribe
+        public void handleObject(Object o){
+            handle();
+        }
+
+        @Subscribe
+        public void handleString(String s){
+            handle();
+        }
+
+        private void handle() {
+            if (++running != 1) {
+                overlapped.set(true);
+            }
+            Thread.yield();
+            running--;
+
+            counter.getAndIncrement();
+        }
+    }
+
+    @Listener(delivery = Delivery.Mailbox)
+    public static class RepublishingMailbox {
+        // more than fits in the mailbox
+        static final int REPUBLISHED = 40;
+
+        private final MessageBus bus;
+        final CountDownLatch queued = new CountDownLatch(1);
+        final CountDownLatch republished = new CountDownLatch(1);
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+
+        public RepublishingMailbox(MessageBus bus) {
+            this.bus = bus;
+        }
+
+        @Subscribe
+        public void handle(Integer i) throws InterruptedException {
+            received.add(i);
+
+            if (i == 0) {
+                queued.await();
+                for (int j = 0; j < REPUBLISHED; j++) {
+                    bus.publish(100 + j);
+                }
+                republished.countDown();
+            }
+        }
+    }
 }